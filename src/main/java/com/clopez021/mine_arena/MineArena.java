@@ -1,16 +1,18 @@
 package com.clopez021.mine_arena;
 
+import com.clopez021.mine_arena.client.SpellModelCache;
 import com.clopez021.mine_arena.client.renderer.SpellEntityRenderer;
 import com.clopez021.mine_arena.config.ServerConfig;
 import com.clopez021.mine_arena.core.entity.ModEntities;
+import com.clopez021.mine_arena.core.entity.SpellEntity;
 import com.clopez021.mine_arena.core.items.ModItems;
-import com.clopez021.mine_arena.model3d.Model;
 import com.clopez021.mine_arena.network.PacketHandler;
 import com.clopez021.mine_arena.player.PlayerManager;
 import com.clopez021.mine_arena.spell.behavior.collision.SpellEffectBehaviorConfig;
 import com.clopez021.mine_arena.spell.config.PlayerSpellConfig;
 import com.clopez021.mine_arena.spell.config.SpellEntityConfig;
 import com.clopez021.mine_arena.util.ModelUtils;
+import com.clopez021.mine_arena.util.ModelUtils.SpellVoxels;
 import com.clopez021.mine_arena.voice.recording.RecorderManager;
 import com.mojang.logging.LogUtils;
 import java.util.ArrayList;
@@ -19,10 +21,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import net.minecraft.client.renderer.entity.EntityRenderers;
-import net.minecraft.core.BlockPos;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.CreativeModeTabs;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.BuildCreativeModeTabContentsEvent;
@@ -89,6 +88,7 @@ public class MineArena {
     @SubscribeEvent
     public static void onClientSetup(FMLClientSetupEvent event) {
       EntityRenderers.register(ModEntities.SPELL_ENTITY.get(), SpellEntityRenderer::new);
+      SpellEntity.setModelSource(SpellModelCache::resolve);
     }
   }
 
@@ -107,12 +107,8 @@ public class MineArena {
       DEFAULT_SPELLS.clear();
 
       try {
-        // Load assets from the mod's resources on the server side by extracting to models/
-        ResourceLocation fireball_dir =
-            ResourceLocation.fromNamespaceAndPath(MOD_ID, "models/fireball");
-        String fireball_baseName = "fireball";
-        Model fireball_model = ModelUtils.loadModelFromResources(fireball_dir, fireball_baseName);
-        Map<BlockPos, BlockState> fireball_blocks = ModelUtils.buildVoxels(fireball_model);
+        // Load the models baked at build time, falling back to the raw assets
+        SpellVoxels fireball_voxels = ModelUtils.loadDefaultVoxels("fireball");
         SpellEffectBehaviorConfig fireball_behavior =
             new SpellEffectBehaviorConfig(
                 5.0f, // radius
@@ -132,14 +128,16 @@ public class MineArena {
                 2); // blockDestructionDepth
         // Fireball: explosion + ignite effect for 5s
         SpellEntityConfig fireball_cfg =
-            new SpellEntityConfig(fireball_blocks, 5.0f, fireball_behavior, true, 1.0f);
+            new SpellEntityConfig(
+                fireball_voxels.blocks(),
+                fireball_voxels.scale(5.0f),
+                fireball_behavior,
+                true,
+                1.0f);
         DEFAULT_SPELLS.add(new PlayerSpellConfig("Infernal Blast", "Fireball", fireball_cfg, 1.0f));
 
         // Shockwave: push entities away (pure knockback), no damage
-        ResourceLocation wind_dir = ResourceLocation.fromNamespaceAndPath(MOD_ID, "models/wind");
-        String wind_baseName = "wind";
-        Model wind_model = ModelUtils.loadModelFromResources(wind_dir, wind_baseName);
-        Map<BlockPos, BlockState> wind_blocks = ModelUtils.buildVoxels(wind_model);
+        SpellVoxels wind_voxels = ModelUtils.loadDefaultVoxels("wind");
         SpellEffectBehaviorConfig wind_behavior =
             new SpellEffectBehaviorConfig(
                 4.0f, // radius
@@ -158,16 +156,12 @@ public class MineArena {
                 0.0f, // blockDestructionRadius (no block breaking)
                 0); // blockDestructionDepth (no block breaking)
         SpellEntityConfig wind_cfg =
-            new SpellEntityConfig(wind_blocks, 10.0f, wind_behavior, true, 0.8f);
+            new SpellEntityConfig(
+                wind_voxels.blocks(), wind_voxels.scale(10.0f), wind_behavior, true, 0.8f);
         DEFAULT_SPELLS.add(new PlayerSpellConfig("Gale Force", "Wind", wind_cfg, 1.0f));
 
         // Ice burst: place ice around and freeze nearby entities for 8s
-        ResourceLocation ice_cube_dir =
-            ResourceLocation.fromNamespaceAndPath(MOD_ID, "models/ice_cube");
-        String ice_cube_baseName = "ice_cube";
-        Model ice_cube_model = ModelUtils.loadModelFromResources(ice_cube_dir, ice_cube_baseName);
-        ice_cube_model.rotation.rotateX(90);
-        Map<BlockPos, BlockState> ice_cube_blocks = ModelUtils.buildVoxels(ice_cube_model);
+        SpellVoxels ice_cube_voxels = ModelUtils.loadDefaultVoxels("ice_cube");
         SpellEffectBehaviorConfig ice_cube_behavior =
             new SpellEffectBehaviorConfig(
                 4.0f, // radius
@@ -186,14 +180,16 @@ public class MineArena {
                 0.0f, // blockDestructionRadius (no block breaking)
                 0); // blockDestructionDepth (no block breaking)
         SpellEntityConfig ice_cube_cfg =
-            new SpellEntityConfig(ice_cube_blocks, 2.0f, ice_cube_behavior, true, 0.6f);
+            new SpellEntityConfig(
+                ice_cube_voxels.blocks(),
+                ice_cube_voxels.scale(2.0f),
+                ice_cube_behavior,
+                true,
+                0.6f);
         DEFAULT_SPELLS.add(new PlayerSpellConfig("Glacial Prison", "Ice cube", ice_cube_cfg, 1.0f));
 
         // Rocket: faster, smaller radius but deals damage via explosion
-        ResourceLocation bomb_dir = ResourceLocation.fromNamespaceAndPath(MOD_ID, "models/bomb");
-        String bomb_baseName = "bomb";
-        Model bomb_model = ModelUtils.loadModelFromResources(bomb_dir, bomb_baseName);
-        Map<BlockPos, BlockState> bomb_blocks = ModelUtils.buildVoxels(bomb_model);
+        SpellVoxels bomb_voxels = ModelUtils.loadDefaultVoxels("bomb");
         SpellEffectBehaviorConfig bomb_behavior =
             new SpellEffectBehaviorConfig(
                 2.5f, // radius
@@ -212,7 +208,8 @@ public class MineArena {
                 2.5f, // blockDestructionRadius (bomb breaks blocks)
                 3); // blockDestructionDepth (deep destruction)
         SpellEntityConfig bomb_cfg =
-            new SpellEntityConfig(bomb_blocks, 3.5f, bomb_behavior, true, 1.5f);
+            new SpellEntityConfig(
+                bomb_voxels.blocks(), bomb_voxels.scale(3.5f), bomb_behavior, true, 1.5f);
         DEFAULT_SPELLS.add(new PlayerSpellConfig("Arcane Detonation", "Bomb", bomb_cfg, 1.0f));
 
         // Levitate: on-cast effect applied to player
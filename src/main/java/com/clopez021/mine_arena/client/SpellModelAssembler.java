@@ -0,0 +1,66 @@
+package com.clopez021.mine_arena.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.Util;
+
+/**
+ * Reassembles spell models from the chunks the server streams them in. Chunks are accepted on the
+ * network thread, and a finished model is verified and unpacked on a background thread by {@link
+ * SpellModelCache#complete(String, byte[])}, so a huge model never stalls the client thread.
+ */
+public final class SpellModelAssembler {
+  private SpellModelAssembler() {}
+
+  /** Largest model accepted, so a bad length cannot exhaust memory. */
+  private static final int MAX_MODEL_BYTES = 16 << 20;
+
+  private static final Map<String, Assembly> assemblies = new HashMap<>();
+
+  private static final class Assembly {
+    final byte[] packed;
+    int received;
+    int nextSequence;
+
+    Assembly(int length) {
+      this.packed = new byte[length];
+    }
+  }
+
+  /**
+   * @param hash The hash of the model.
+   * @param sequence The index of the chunk, counting from 0.
+   * @param length The size of the whole model in bytes.
+   * @param chunk The bytes of the chunk.
+   */
+  public static synchronized void accept(String hash, int sequence, int length, byte[] chunk) {
+    if (sequence == 0 && length >= 0 && length <= MAX_MODEL_BYTES) {
+      assemblies.put(hash, new Assembly(length));
+    }
+    Assembly assembly = assemblies.get(hash);
+    if (assembly == null
+        || sequence != assembly.nextSequence
+        || length != assembly.packed.length
+        || chunk.length > length - assembly.received) {
+      // Out of order or inconsistent, so the model cannot be completed
+      assemblies.remove(hash);
+      SpellModelCache.fail(hash);
+      return;
+    }
+
+    System.arraycopy(chunk, 0, assembly.packed, assembly.received, chunk.length);
+    assembly.received += chunk.length;
+    ++assembly.nextSequence;
+    if (assembly.received == length) {
+      assemblies.remove(hash);
+      Util.backgroundExecutor().execute(() -> SpellModelCache.complete(hash, assembly.packed));
+    } else {
+      SpellModelCache.progress(hash);
+    }
+  }
+
+  /** Drops partly received models, for when the client level is unloaded. */
+  static synchronized void clear() {
+    assemblies.clear();
+  }
+}
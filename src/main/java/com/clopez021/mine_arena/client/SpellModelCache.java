@@ -0,0 +1,298 @@
+package com.clopez021.mine_arena.client;
+
+import com.clopez021.mine_arena.MineArena;
+import com.clopez021.mine_arena.core.entity.SpellEntity;
+import com.clopez021.mine_arena.network.PacketHandler;
+import com.clopez021.mine_arena.network.RequestSpellModelPacket;
+import com.clopez021.mine_arena.spell.config.SpellEntityConfig;
+import com.mojang.logging.LogUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.network.PacketDistributor;
+import org.slf4j.Logger;
+
+/**
+ * The spell models known to the client, keyed by {@link SpellEntityConfig#getModelHash()}. Spells
+ * are synced by hash only; a model missing from memory is loaded from disk under models/spells or
+ * else requested from the server, so a model is only transferred the first time this client sees
+ * it. The disk cache holds at most {@link #DISK_BYTES}, and the least recently used models are
+ * deleted first. A request that gets no chunk of its model for {@link #REQUEST_TIMEOUT_MS}, or
+ * whose transfer broke off, is sent again while spells still wait for it, up to {@link
+ * #MAX_ATTEMPTS} times. A model that arrives after it was given up on is still used. Reading,
+ * verifying and unpacking models happens on a background thread, and the spells waiting for a model
+ * are updated on the client thread once it is ready. Apart from {@link #progress(String)}, {@link
+ * #complete(String, byte[])} and {@link #fail(String)}, must only be used on the client thread.
+ */
+public final class SpellModelCache {
+  private SpellModelCache() {}
+
+  private static final Logger LOGGER = LogUtils.getLogger();
+
+  /** The number of models kept in memory. */
+  private static final int MEMORY_ENTRIES = 64;
+
+  /** How long the server has to send the next chunk of a model before it is requested again. */
+  private static final long REQUEST_TIMEOUT_MS = 10_000;
+
+  /** The most times a model is requested from the server before giving up on it. */
+  private static final int MAX_ATTEMPTS = 3;
+
+  /** The most bytes of models kept on disk. */
+  private static final long DISK_BYTES = 64L << 20;
+
+  public static final File directory = new File("models/spells");
+
+  private static final Map<String, Map<BlockPos, BlockState>> memory =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<BlockPos, BlockState>> eldest) {
+          return size() > MEMORY_ENTRIES;
+        }
+      };
+
+  /** The models being loaded or fetched. */
+  private static final Map<String, Request> pending = new HashMap<>();
+
+  /** The entities waiting for a model and when to ask the server for it again. */
+  private static final class Request {
+    final Set<Integer> waiting = new HashSet<>();
+    int attempts;
+    // Not due while the model is being loaded from disk
+    long retryAt = Long.MAX_VALUE;
+  }
+
+  /**
+   * The client's {@link SpellEntity.ModelSource}.
+   *
+   * @param hash The hash of a model.
+   * @param entityId The spell entity to update once the model is ready, if it is not in memory.
+   * @return The blocks of the model, or null if it is not in memory and is being loaded or fetched.
+   */
+  public static Map<BlockPos, BlockState> resolve(String hash, int entityId) {
+    Map<BlockPos, BlockState> blocks = memory.get(hash);
+    if (blocks == null) request(hash, entityId);
+    return blocks;
+  }
+
+  /**
+   * Loads a model that is not in memory from disk, or asks the server for it, unless that is
+   * already underway.
+   */
+  private static void request(String hash, int entityId) {
+    Request request = pending.get(hash);
+    if (request == null) {
+      request = new Request();
+      pending.put(hash, request);
+      Util.backgroundExecutor().execute(() -> load(hash));
+    }
+    request.waiting.add(entityId);
+  }
+
+  /** Completes a request from disk, or forwards it to the server on a miss. */
+  private static void load(String hash) {
+    File file = new File(directory, hash + ".bin");
+    if (isValidHash(hash) && file.isFile()) {
+      try {
+        byte[] packed = Files.readAllBytes(file.toPath());
+        // A damaged entry would otherwise be trusted forever
+        if (hash.equals(SpellEntityConfig.hashModel(packed))) {
+          // Marks the model as recently used, so trimming keeps it
+          file.setLastModified(System.currentTimeMillis());
+          deliver(hash, SpellEntityConfig.unpackBlocks(packed));
+          return;
+        }
+        file.delete();
+      } catch (IOException e) {
+        LOGGER.warn("Ignoring unreadable spell model {}", file, e);
+      }
+    }
+    Minecraft.getInstance()
+        .execute(
+            () -> {
+              Request request = pending.get(hash);
+              if (request != null) send(hash, request);
+            });
+  }
+
+  /**
+   * Asks the server for a model on behalf of the spells still waiting for it, or gives up on the
+   * model once none are left or it was requested {@link #MAX_ATTEMPTS} times.
+   */
+  private static void send(String hash, Request request) {
+    Minecraft minecraft = Minecraft.getInstance();
+    request.waiting.removeIf(
+        entityId ->
+            minecraft.level == null
+                || !(minecraft.level.getEntity(entityId) instanceof SpellEntity spell)
+                || !spell.getConfig().isModelPending());
+    if (request.waiting.isEmpty() || request.attempts >= MAX_ATTEMPTS) {
+      if (!request.waiting.isEmpty()) LOGGER.warn("Gave up fetching spell model {}", hash);
+      pending.remove(hash);
+      return;
+    }
+    ++request.attempts;
+    request.retryAt = Util.getMillis() + REQUEST_TIMEOUT_MS;
+    // The server serves models by hash and only falls back to the spell for dropped ones
+    int entityId = request.waiting.iterator().next();
+    PacketHandler.INSTANCE.send(
+        new RequestSpellModelPacket(hash, entityId), PacketDistributor.SERVER.noArg());
+  }
+
+  /**
+   * Stores a model sent by the server on disk and hands it to the spells waiting for it. Called
+   * off the client thread.
+   *
+   * @param hash The hash the model was requested by.
+   * @param packed The packed blocks of the model.
+   */
+  public static void complete(String hash, byte[] packed) {
+    if (!isValidHash(hash) || !hash.equals(SpellEntityConfig.hashModel(packed))) {
+      LOGGER.warn("Ignoring spell model that does not match its hash {}", hash);
+      fail(hash);
+      return;
+    }
+
+    File file = new File(directory, hash + ".bin");
+    File temp = new File(directory, hash + ".tmp");
+    try {
+      directory.mkdirs();
+      Files.write(temp.toPath(), packed);
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to write spell model {}", file, e);
+      temp.delete();
+    }
+    trimDisk();
+    deliver(hash, SpellEntityConfig.unpackBlocks(packed));
+  }
+
+  /** Deletes the least recently used models on disk until they fit in {@link #DISK_BYTES}. */
+  private static synchronized void trimDisk() {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    if (files == null) return;
+    // Read once, as loading a model may touch its file while sorting
+    record Entry(File file, long lastModified, long length) {}
+    List<Entry> entries = new ArrayList<>(files.length);
+    long total = 0;
+    for (File file : files) {
+      entries.add(new Entry(file, file.lastModified(), file.length()));
+      total += file.length();
+    }
+    if (total <= DISK_BYTES) return;
+    entries.sort(Comparator.comparingLong(Entry::lastModified));
+    for (Entry entry : entries) {
+      if (total <= DISK_BYTES) break;
+      if (entry.file.delete()) total -= entry.length;
+    }
+  }
+
+  /**
+   * Gives a model that is still streaming another {@link #REQUEST_TIMEOUT_MS}, so a large or queued
+   * transfer is not requested again. Called off the client thread for every accepted chunk.
+   */
+  public static void progress(String hash) {
+    Minecraft.getInstance()
+        .execute(
+            () -> {
+              Request request = pending.get(hash);
+              // A transfer that broke off is due right away
+              if (request != null && request.retryAt != 0) {
+                request.retryAt = Util.getMillis() + REQUEST_TIMEOUT_MS;
+              }
+            });
+  }
+
+  /**
+   * Requests a model whose transfer broke off again on the next client tick. Called off the client
+   * thread.
+   */
+  public static void fail(String hash) {
+    Minecraft.getInstance()
+        .execute(
+            () -> {
+              Request request = pending.get(hash);
+              if (request != null) request.retryAt = 0;
+            });
+  }
+
+  /**
+   * Stops waiting for a model the server no longer has. The spells waiting for it keep their
+   * placeholder until they are synced with another model.
+   */
+  public static void unavailable(String hash) {
+    if (pending.remove(hash) != null) LOGGER.warn("The server has no spell model {}", hash);
+  }
+
+  /**
+   * Stores verified blocks in memory and updates every spell of the level still showing a
+   * placeholder for them on the client thread, including spells whose request was given up on.
+   */
+  private static void deliver(String hash, Map<BlockPos, BlockState> blocks) {
+    Map<BlockPos, BlockState> model = Collections.unmodifiableMap(blocks);
+    Minecraft minecraft = Minecraft.getInstance();
+    minecraft.execute(
+        () -> {
+          pending.remove(hash);
+          memory.put(hash, model);
+          // The level was left while the model was on its way
+          if (minecraft.level == null) return;
+          for (Entity entity : minecraft.level.entitiesForRendering()) {
+            if (entity instanceof SpellEntity spell
+                && spell.getConfig().isModelPending()
+                && hash.equals(spell.getConfig().getModelHash())) {
+              spell.onModelReceived();
+            }
+          }
+        });
+  }
+
+  /** Hashes come from the server and name files, so only hex SHA-256 digests are accepted. */
+  private static boolean isValidHash(String hash) {
+    return hash.length() == 64
+        && hash.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+  }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID, value = Dist.CLIENT)
+  public static final class Events {
+    /** Sends requests again that timed out or whose transfer broke off. */
+    @SubscribeEvent
+    public static void onClientTick(TickEvent.ClientTickEvent event) {
+      if (event.phase != TickEvent.Phase.END || pending.isEmpty()) return;
+      long now = Util.getMillis();
+      // Copied, as sending may give up on a request and remove it
+      for (Map.Entry<String, Request> entry : List.copyOf(pending.entrySet())) {
+        if (entry.getValue().retryAt <= now) send(entry.getKey(), entry.getValue());
+      }
+    }
+
+    /** Requests of a level that was left are never answered. */
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+      if (event.getLevel().isClientSide()) {
+        pending.clear();
+        SpellModelAssembler.clear();
+      }
+    }
+  }
+}
@@ -1,18 +1,62 @@
 package com.clopez021.mine_arena.client.renderer;
 
+import com.clopez021.mine_arena.MineArena;
 import com.clopez021.mine_arena.core.entity.SpellEntity;
+import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.PoseStack;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.LightTexture;
 import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.block.BlockRenderDispatcher;
 import net.minecraft.client.renderer.entity.EntityRenderer;
 import net.minecraft.client.renderer.entity.EntityRendererProvider;
 import net.minecraft.client.renderer.texture.OverlayTexture;
-import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.model.data.ModelData;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
 
 public class SpellEntityRenderer extends EntityRenderer<SpellEntity> {
-  private final net.minecraft.client.renderer.block.BlockRenderDispatcher blockRenderer;
+  /**
+   * A coarser level of detail is drawn while its blocks still cover no more than this many pixels
+   * of the screen, so the lost detail is too small to see.
+   */
+  private static final double LOD_BLOCK_PIXELS = 2;
+
+  /** Stretched over the bounds of a spell whose model has not arrived yet. */
+  private static final BlockState PLACEHOLDER = Blocks.WHITE_STAINED_GLASS.defaultBlockState();
+
+  /**
+   * Baked meshes by the identity of the blocks they were baked from. Spells with the same model
+   * share one block map, so they share its meshes too. A spell's blocks are replaced rather than
+   * modified, so new blocks mean new meshes.
+   */
+  private static final Map<Map<BlockPos, BlockState>, SharedMesh> meshes =
+      new IdentityHashMap<>();
+
+  /** The blocks each spell in the client level is drawn from, by entity id. */
+  private static final Map<Integer, Map<BlockPos, BlockState>> drawnBlocks = new HashMap<>();
+
+  /** Meshes and the number of spells drawing them. */
+  private static final class SharedMesh {
+    final SpellLods lods;
+    int users;
+
+    SharedMesh(SpellLods lods) {
+      this.lods = lods;
+    }
+  }
+
+  private final BlockRenderDispatcher blockRenderer;
 
   public SpellEntityRenderer(EntityRendererProvider.Context context) {
     super(context);
@@ -40,31 +84,112 @@ public class SpellEntityRenderer extends EntityRenderer<SpellEntity> {
         );
     pose.scale(micro, micro, micro);
 
-    // draw each block at its local integer offset
-    for (var entry : entity.getBlocks().entrySet()) {
-      var localPos = entry.getKey();
-      BlockState state = entry.getValue();
-      ResourceLocation blockId = BuiltInRegistries.BLOCK.getKey(state.getBlock());
-
-      pose.pushPose();
-      pose.translate(localPos.getX(), localPos.getY(), localPos.getZ());
-
-      blockRenderer.renderSingleBlock(
-          state,
-          pose,
-          buf,
-          LightTexture.FULL_BRIGHT,
-          OverlayTexture.NO_OVERLAY,
-          net.minecraftforge.client.model.data.ModelData.EMPTY,
-          null);
+    if (entity.getConfig().isModelPending()) {
+      renderPlaceholder(entity, pose, buf);
       pose.popPose();
+      return;
     }
 
+    // Blocks of coarser levels span several spell blocks
+    int level = chooseLevel(entity, micro);
+    pose.scale(1 << level, 1 << level, 1 << level);
+
+    // Draw the baked blocks in their local integer offsets with the single pose above
+    getLods(entity).get(level, blockRenderer).draw(pose, buf, blockRenderer);
+
     pose.popPose();
   }
 
+  /** Draws a box the size of the spell's model while the model is being fetched. */
+  private void renderPlaceholder(SpellEntity entity, PoseStack pose, MultiBufferSource buf) {
+    pose.translate(entity.minCorner.x, entity.minCorner.y, entity.minCorner.z);
+    pose.scale(
+        entity.maxCorner.x - entity.minCorner.x,
+        entity.maxCorner.y - entity.minCorner.y,
+        entity.maxCorner.z - entity.minCorner.z);
+    blockRenderer.renderSingleBlock(
+        PLACEHOLDER,
+        pose,
+        buf,
+        LightTexture.FULL_BRIGHT,
+        OverlayTexture.NO_OVERLAY,
+        ModelData.EMPTY,
+        null);
+  }
+
+  /**
+   * Picks the coarsest level of detail whose blocks are still at most {@link #LOD_BLOCK_PIXELS} on
+   * screen, from the camera distance and the size of a block of the spell.
+   *
+   * @return The level of detail to draw, 0 for full detail.
+   */
+  private int chooseLevel(SpellEntity entity, float micro) {
+    Minecraft minecraft = Minecraft.getInstance();
+    double distance = Math.sqrt(entityRenderDispatcher.distanceToSqr(entity));
+    double fov = Math.toRadians(minecraft.options.fov().get());
+    double pixelsPerBlock = minecraft.getWindow().getHeight() / (2 * Math.tan(fov / 2));
+    double blockPixels = micro * pixelsPerBlock / Math.max(distance, 1e-3);
+
+    int level = 0;
+    while (level + 1 < SpellLods.LEVELS && blockPixels * (2 << level) <= LOD_BLOCK_PIXELS) {
+      ++level;
+    }
+    return level;
+  }
+
+  /**
+   * @return The levels of detail of the entity's blocks, shared with every spell drawn from the
+   *     same blocks and replaced whenever its blocks are.
+   */
+  private SpellLods getLods(SpellEntity entity) {
+    Map<BlockPos, BlockState> blocks = entity.getBlocks();
+    Map<BlockPos, BlockState> drawn = drawnBlocks.get(entity.getId());
+    if (drawn != blocks) {
+      if (drawn != null) releaseBlocks(drawn);
+      meshes.computeIfAbsent(blocks, b -> new SharedMesh(new SpellLods(b))).users++;
+      drawnBlocks.put(entity.getId(), blocks);
+    }
+    return meshes.get(blocks).lods;
+  }
+
+  /** Stops a spell from drawing its blocks once it left the client level. */
+  private static void release(int entityId) {
+    Map<BlockPos, BlockState> drawn = drawnBlocks.remove(entityId);
+    if (drawn != null) releaseBlocks(drawn);
+  }
+
+  /** Frees the meshes of blocks once no spell draws them anymore. */
+  private static void releaseBlocks(Map<BlockPos, BlockState> blocks) {
+    SharedMesh shared = meshes.get(blocks);
+    if (shared == null || --shared.users > 0) return;
+    meshes.remove(blocks);
+    RenderSystem.recordRenderCall(shared.lods::close);
+  }
+
+  /** Frees every mesh, for when the client level is unloaded. */
+  private static void releaseAll() {
+    for (SharedMesh shared : meshes.values()) RenderSystem.recordRenderCall(shared.lods::close);
+    meshes.clear();
+    drawnBlocks.clear();
+  }
+
   @Override
   public ResourceLocation getTextureLocation(SpellEntity entity) {
     return null; // not used; we render block models
   }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID, value = Dist.CLIENT)
+  public static final class MeshEvents {
+    @SubscribeEvent
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+      if (event.getLevel().isClientSide() && event.getEntity() instanceof SpellEntity spell) {
+        release(spell.getId());
+      }
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+      if (event.getLevel().isClientSide()) releaseAll();
+    }
+  }
 }
@@ -0,0 +1,69 @@
+package com.clopez021.mine_arena.client.renderer;
+
+import com.clopez021.mine_arena.model3d.Model;
+import com.clopez021.mine_arena.model3d.util.VoxelDownsampler;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
+import com.clopez021.mine_arena.util.ModelUtils;
+import java.util.Map;
+import net.minecraft.client.renderer.block.BlockRenderDispatcher;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * The meshes of a spell at every level of detail. Level 0 is the spell's own blocks and every
+ * further level halves the resolution of the one before with {@link VoxelDownsampler}, so a block
+ * of level n spans 2^n blocks of the spell. Levels are downsampled and meshed on first use. Must
+ * only be used on the render thread.
+ */
+final class SpellLods implements AutoCloseable {
+  /** The number of levels, the coarsest being 4x downsampled. */
+  static final int LEVELS = 3;
+
+  private final Map<BlockPos, BlockState> blocks;
+
+  /** Palette grids of every level, computed on first use. */
+  private final VoxelGrid[] grids = new VoxelGrid[LEVELS];
+
+  private final SpellMesh[] meshes = new SpellMesh[LEVELS];
+
+  /**
+   * @param blocks The blocks of the spell at full detail.
+   */
+  SpellLods(Map<BlockPos, BlockState> blocks) {
+    this.blocks = blocks;
+  }
+
+  /**
+   * @param level The level of detail, 0 to {@link #LEVELS} - 1.
+   * @param dispatcher The dispatcher providing block models.
+   * @return The mesh of the level.
+   */
+  SpellMesh get(int level, BlockRenderDispatcher dispatcher) {
+    if (meshes[level] == null) {
+      Map<BlockPos, BlockState> levelBlocks =
+          level == 0 ? blocks : Model.toBlockMap(getGrid(level));
+      // Full detail is seen up close, where stretched textures of merged faces would show
+      meshes[level] = SpellMesh.build(levelBlocks, dispatcher, level > 0);
+    }
+    return meshes[level];
+  }
+
+  private VoxelGrid getGrid(int level) {
+    if (grids[level] == null) {
+      grids[level] =
+          level == 0
+              ? ModelUtils.toPaletteGrid(blocks)
+              : VoxelDownsampler.halve(getGrid(level - 1));
+    }
+    return grids[level];
+  }
+
+  /** Frees the mesh of every level. */
+  @Override
+  public void close() {
+    for (int level = 0; level < LEVELS; ++level) {
+      if (meshes[level] != null) meshes[level].close();
+      meshes[level] = null;
+    }
+  }
+}
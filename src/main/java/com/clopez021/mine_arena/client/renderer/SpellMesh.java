@@ -0,0 +1,141 @@
+package com.clopez021.mine_arena.client.renderer;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.client.renderer.block.BlockRenderDispatcher;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.RenderShape;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.client.model.data.ModelData;
+import org.joml.Matrix4f;
+
+/**
+ * The block model quads of a spell tessellated once into one static vertex buffer per render type,
+ * so drawing a spell is a handful of draw calls no matter how many blocks it has. Quads come from
+ * {@link SpellMesher}, full bright and in the spell's local block coordinates. Must only be used on
+ * the render thread.
+ */
+public final class SpellMesh implements AutoCloseable {
+  /** Initial buffer size per render type, enough for a few hundred blocks. */
+  private static final int INITIAL_BUFFER_BYTES = 256 * 1024;
+
+  /** Baked buffers in the order their render types were first used. */
+  private final Map<RenderType, VertexBuffer> buffers;
+
+  /** Blocks rendered by a block entity renderer, which cannot be baked. */
+  private final List<Map.Entry<BlockPos, BlockState>> animatedBlocks;
+
+  private SpellMesh(
+      Map<RenderType, VertexBuffer> buffers,
+      List<Map.Entry<BlockPos, BlockState>> animatedBlocks) {
+    this.buffers = buffers;
+    this.animatedBlocks = animatedBlocks;
+  }
+
+  /**
+   * @param blocks The blocks of a spell.
+   * @param dispatcher The dispatcher providing block models.
+   * @param mergeFaces Whether to merge coplanar faces into larger quads with stretched textures.
+   * @return A mesh of every block.
+   */
+  public static SpellMesh build(
+      Map<BlockPos, BlockState> blocks, BlockRenderDispatcher dispatcher, boolean mergeFaces) {
+    Map<RenderType, ByteBufferBuilder> memory = new LinkedHashMap<>();
+    Map<RenderType, BufferBuilder> builders = new LinkedHashMap<>();
+    List<Map.Entry<BlockPos, BlockState>> animatedBlocks = new ArrayList<>();
+    for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+      if (entry.getValue().getRenderShape() == RenderShape.ENTITYBLOCK_ANIMATED) {
+        animatedBlocks.add(entry);
+      }
+    }
+
+    SpellMesher.mesh(
+        blocks,
+        dispatcher,
+        mergeFaces,
+        type ->
+            builders.computeIfAbsent(
+                type,
+                t -> {
+                  ByteBufferBuilder bytes = new ByteBufferBuilder(INITIAL_BUFFER_BYTES);
+                  memory.put(t, bytes);
+                  return new BufferBuilder(bytes, t.mode(), t.format());
+                }));
+
+    Map<RenderType, VertexBuffer> buffers = new LinkedHashMap<>();
+    for (Map.Entry<RenderType, BufferBuilder> entry : builders.entrySet()) {
+      MeshData mesh = entry.getValue().build();
+      if (mesh != null) {
+        VertexBuffer buffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+        buffer.bind();
+        buffer.upload(mesh);
+        buffers.put(entry.getKey(), buffer);
+      }
+    }
+    VertexBuffer.unbind();
+    memory.values().forEach(ByteBufferBuilder::close);
+    return new SpellMesh(buffers, animatedBlocks);
+  }
+
+  /**
+   * Draws every baked buffer and the blocks that could not be baked.
+   *
+   * @param pose The pose of the spell's local block coordinates.
+   * @param bufferSource The buffers to render unbaked blocks into.
+   * @param dispatcher The dispatcher to render unbaked blocks with.
+   */
+  public void draw(
+      PoseStack pose, MultiBufferSource bufferSource, BlockRenderDispatcher dispatcher) {
+    if (!buffers.isEmpty()) {
+      Matrix4f modelView = new Matrix4f(RenderSystem.getModelViewMatrix()).mul(pose.last().pose());
+      Matrix4f projection = RenderSystem.getProjectionMatrix();
+      for (Map.Entry<RenderType, VertexBuffer> entry : buffers.entrySet()) {
+        RenderType type = entry.getKey();
+        type.setupRenderState();
+        ShaderInstance shader = RenderSystem.getShader();
+        if (shader != null) {
+          VertexBuffer buffer = entry.getValue();
+          buffer.bind();
+          buffer.drawWithShader(modelView, projection, shader);
+        }
+        type.clearRenderState();
+      }
+      VertexBuffer.unbind();
+    }
+
+    for (Map.Entry<BlockPos, BlockState> entry : animatedBlocks) {
+      BlockPos pos = entry.getKey();
+      pose.pushPose();
+      pose.translate(pos.getX(), pos.getY(), pos.getZ());
+      dispatcher.renderSingleBlock(
+          entry.getValue(),
+          pose,
+          bufferSource,
+          LightTexture.FULL_BRIGHT,
+          OverlayTexture.NO_OVERLAY,
+          ModelData.EMPTY,
+          null);
+      pose.popPose();
+    }
+  }
+
+  /** Frees the vertex buffers. The mesh must not be drawn afterwards. */
+  @Override
+  public void close() {
+    buffers.values().forEach(VertexBuffer::close);
+    buffers.clear();
+  }
+}
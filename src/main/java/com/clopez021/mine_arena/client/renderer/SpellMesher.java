@@ -0,0 +1,357 @@
+package com.clopez021.mine_arena.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.block.BlockRenderDispatcher;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.RenderShape;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.client.RenderTypeHelper;
+import net.minecraftforge.client.model.IQuadTransformer;
+import net.minecraftforge.client.model.data.ModelData;
+
+/**
+ * Turns the blocks of a spell into quads with as few faces as possible. Faces hidden by a
+ * neighboring block are dropped, the same test {@link
+ * com.clopez021.mine_arena.model3d.Model#shouldRenderFace} applies to previews, and coplanar full
+ * faces with the same texture can be greedily merged into larger quads. Merged quads stretch their
+ * texture across every block they cover, so only coarse levels of detail, drawn while their blocks
+ * are a few pixels on screen, merge faces. Other quads are emitted exactly like {@link
+ * BlockRenderDispatcher#renderSingleBlock} does.
+ */
+final class SpellMesher {
+  private SpellMesher() {}
+
+  /** The most blocks a merged quad spans along each side, to limit texture stretching. */
+  private static final int MAX_QUAD_BLOCKS = 8;
+
+  /** Vertices on a face must lie this close to its plane and corners to be merged. */
+  private static final float EPSILON = 1e-4f;
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  /**
+   * A face that can be merged with its neighbors: one quad covering a whole side of a block, with
+   * the tint applied to it, 1 in every channel if it is not tinted.
+   *
+   * @param renderType The entity render type the face is drawn with.
+   * @param quad The quad of the face.
+   */
+  private record MergeableFace(
+      RenderType renderType, BakedQuad quad, float red, float green, float blue) {}
+
+  /** How a block state is meshed, computed once per state. */
+  private static final class StateMesh {
+    final BlockState state;
+    final BakedModel model;
+    final List<RenderType> renderTypes = new ArrayList<>();
+    final float red, green, blue;
+
+    /** The mergeable face for each direction, or null if the side has to be emitted as is. */
+    final MergeableFace[] faces = new MergeableFace[DIRECTIONS.length];
+
+    StateMesh(BlockState state, BlockRenderDispatcher dispatcher, RandomSource random) {
+      this.state = state;
+      this.model = dispatcher.getBlockModel(state);
+      int tint = Minecraft.getInstance().getBlockColors().getColor(state, null, null, 0);
+      red = (tint >> 16 & 255) / 255f;
+      green = (tint >> 8 & 255) / 255f;
+      blue = (tint & 255) / 255f;
+
+      random.setSeed(42);
+      for (RenderType type : model.getRenderTypes(state, random, ModelData.EMPTY)) {
+        renderTypes.add(type);
+      }
+      for (Direction direction : DIRECTIONS) {
+        MergeableFace face = null;
+        int quadCount = 0;
+        for (RenderType type : renderTypes) {
+          random.setSeed(42);
+          List<BakedQuad> quads = model.getQuads(state, direction, random, ModelData.EMPTY, type);
+          quadCount += quads.size();
+          if (quads.size() == 1 && coversFace(quads.get(0), direction)) {
+            BakedQuad quad = quads.get(0);
+            face =
+                new MergeableFace(
+                    RenderTypeHelper.getEntityRenderType(type, false),
+                    quad,
+                    quad.isTinted() ? red : 1,
+                    quad.isTinted() ? green : 1,
+                    quad.isTinted() ? blue : 1);
+          }
+        }
+        faces[direction.ordinal()] = quadCount == 1 ? face : null;
+      }
+    }
+  }
+
+  /**
+   * @param blocks The blocks of a spell.
+   * @param dispatcher The dispatcher providing block models.
+   * @param merge Whether to merge faces, stretching their textures.
+   * @param buffers The vertex consumer for each entity render type.
+   */
+  static void mesh(
+      Map<BlockPos, BlockState> blocks,
+      BlockRenderDispatcher dispatcher,
+      boolean merge,
+      Function<RenderType, VertexConsumer> buffers) {
+    if (blocks.isEmpty()) return;
+    int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+    for (BlockPos pos : blocks.keySet()) {
+      minX = Math.min(minX, pos.getX());
+      minY = Math.min(minY, pos.getY());
+      minZ = Math.min(minZ, pos.getZ());
+      maxX = Math.max(maxX, pos.getX());
+      maxY = Math.max(maxY, pos.getY());
+      maxZ = Math.max(maxZ, pos.getZ());
+    }
+    int[] min = {minX, minY, minZ};
+    int[] size = {maxX - minX + 1, maxY - minY + 1, maxZ - minZ + 1};
+
+    // Index every block into a dense grid of state indices plus one, 0 where there is no block
+    RandomSource random = RandomSource.create();
+    List<StateMesh> states = new ArrayList<>();
+    Map<BlockState, Integer> stateIndices = new HashMap<>();
+    int[] cells = new int[size[0] * size[1] * size[2]];
+    for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+      BlockState state = entry.getValue();
+      if (state.getRenderShape() == RenderShape.INVISIBLE) continue;
+      int index =
+          stateIndices.computeIfAbsent(
+              state,
+              s -> {
+                states.add(new StateMesh(s, dispatcher, random));
+                return states.size() - 1;
+              });
+      BlockPos pos = entry.getKey();
+      cells[cellIndex(size, pos.getX() - minX, pos.getY() - minY, pos.getZ() - minZ)] = index + 1;
+    }
+
+    PoseStack pose = new PoseStack();
+    Map<MergeableFace, Integer> faceIds = new HashMap<>();
+    List<MergeableFace> faceList = new ArrayList<>();
+    int[] cell = new int[3];
+    for (Direction direction : DIRECTIONS) {
+      int axis = direction.getAxis().ordinal();
+      int u = (axis + 1) % 3, v = (axis + 2) % 3;
+      int[] mask = new int[size[u] * size[v]];
+      for (int slice = 0; slice < size[axis]; ++slice) {
+        Arrays.fill(mask, -1);
+        cell[axis] = slice;
+        for (int i = 0; i < size[u]; ++i) {
+          cell[u] = i;
+          for (int j = 0; j < size[v]; ++j) {
+            cell[v] = j;
+            int stateIndex = cells[cellIndex(size, cell[0], cell[1], cell[2])] - 1;
+            if (stateIndex < 0) continue;
+            StateMesh stateMesh = states.get(stateIndex);
+            if (stateMesh.state.getRenderShape() != RenderShape.MODEL) continue;
+            if (isHidden(stateMesh.state, states, cells, size, cell, direction)) continue;
+
+            MergeableFace face = stateMesh.faces[direction.ordinal()];
+            if (merge && face != null) {
+              mask[i * size[v] + j] =
+                  faceIds.computeIfAbsent(
+                      face,
+                      f -> {
+                        faceList.add(f);
+                        return faceList.size() - 1;
+                      });
+            } else {
+              pose.pushPose();
+              pose.translate(min[0] + cell[0], min[1] + cell[1], min[2] + cell[2]);
+              emitQuads(stateMesh, direction, random, pose, buffers);
+              pose.popPose();
+            }
+          }
+        }
+        if (merge) mergeFaces(mask, faceList, direction, slice, min, size, pose, buffers);
+      }
+    }
+
+    // Quads without a cull face are never hidden by neighbors
+    for (int i = 0; i < cells.length; ++i) {
+      if (cells[i] == 0) continue;
+      StateMesh stateMesh = states.get(cells[i] - 1);
+      if (stateMesh.state.getRenderShape() != RenderShape.MODEL) continue;
+      int x = i % size[0], y = i / size[0] % size[1], z = i / (size[0] * size[1]);
+      pose.pushPose();
+      pose.translate(min[0] + x, min[1] + y, min[2] + z);
+      emitQuads(stateMesh, null, random, pose, buffers);
+      pose.popPose();
+    }
+  }
+
+  private static int cellIndex(int[] size, int x, int y, int z) {
+    return (z * size[1] + y) * size[0] + x;
+  }
+
+  /**
+   * @return Whether the side of the block at cell is covered by its neighbor in that direction.
+   */
+  private static boolean isHidden(
+      BlockState state,
+      List<StateMesh> states,
+      int[] cells,
+      int[] size,
+      int[] cell,
+      Direction direction) {
+    int x = cell[0] + direction.getStepX();
+    int y = cell[1] + direction.getStepY();
+    int z = cell[2] + direction.getStepZ();
+    if (x < 0 || y < 0 || z < 0 || x >= size[0] || y >= size[1] || z >= size[2]) return false;
+    int neighbor = cells[cellIndex(size, x, y, z)] - 1;
+    if (neighbor < 0) return false;
+    BlockState neighborState = states.get(neighbor).state;
+    return neighborState.canOcclude() || state.skipRendering(neighborState, direction);
+  }
+
+  /**
+   * Greedily covers the faces of one slice with rectangles of the same face and emits a quad for
+   * each rectangle. Clears the mask.
+   */
+  private static void mergeFaces(
+      int[] mask,
+      List<MergeableFace> faces,
+      Direction direction,
+      int slice,
+      int[] min,
+      int[] size,
+      PoseStack pose,
+      Function<RenderType, VertexConsumer> buffers) {
+    int axis = direction.getAxis().ordinal();
+    int u = (axis + 1) % 3, v = (axis + 2) % 3;
+    int width = size[u], height = size[v];
+    for (int i = 0; i < width; ++i) {
+      for (int j = 0; j < height; ++j) {
+        int id = mask[i * height + j];
+        if (id < 0) continue;
+
+        // Grow along v first, then along u while every cell of the next row matches
+        int h = 1;
+        while (h < MAX_QUAD_BLOCKS && j + h < height && mask[i * height + j + h] == id) ++h;
+        int w = 1;
+        grow:
+        while (w < MAX_QUAD_BLOCKS && i + w < width) {
+          for (int k = 0; k < h; ++k) {
+            if (mask[(i + w) * height + j + k] != id) break grow;
+          }
+          ++w;
+        }
+        for (int a = 0; a < w; ++a) {
+          int row = (i + a) * height + j;
+          Arrays.fill(mask, row, row + h, -1);
+        }
+
+        int[] origin = new int[3];
+        origin[axis] = min[axis] + slice;
+        origin[u] = min[u] + i;
+        origin[v] = min[v] + j;
+        MergeableFace face = faces.get(id);
+        BakedQuad quad = stretch(face.quad(), axis, u, v, origin, w, h);
+        buffers
+            .apply(face.renderType())
+            .putBulkData(
+                pose.last(),
+                quad,
+                face.red(),
+                face.green(),
+                face.blue(),
+                1,
+                LightTexture.FULL_BRIGHT,
+                OverlayTexture.NO_OVERLAY);
+      }
+    }
+  }
+
+  /**
+   * @return A copy of a full face quad moved to origin and stretched to cover w blocks along u and
+   *     h blocks along v, keeping the texture coordinates of every corner.
+   */
+  private static BakedQuad stretch(
+      BakedQuad quad, int axis, int u, int v, int[] origin, int w, int h) {
+    int[] vertices = quad.getVertices().clone();
+    for (int k = 0; k < 4; ++k) {
+      int offset = k * IQuadTransformer.STRIDE + IQuadTransformer.POSITION;
+      float[] position = new float[3];
+      for (int c = 0; c < 3; ++c) position[c] = Float.intBitsToFloat(vertices[offset + c]);
+      position[axis] += origin[axis];
+      position[u] = origin[u] + Math.round(position[u]) * w;
+      position[v] = origin[v] + Math.round(position[v]) * h;
+      for (int c = 0; c < 3; ++c) vertices[offset + c] = Float.floatToRawIntBits(position[c]);
+    }
+    return new BakedQuad(
+        vertices, quad.getTintIndex(), quad.getDirection(), quad.getSprite(), quad.isShade());
+  }
+
+  /**
+   * @return Whether the quad is a rectangle covering the whole side of the block in the direction.
+   */
+  private static boolean coversFace(BakedQuad quad, Direction direction) {
+    if (quad.getDirection() != direction) return false;
+    int[] vertices = quad.getVertices();
+    if (vertices.length < 4 * IQuadTransformer.STRIDE) return false;
+    int axis = direction.getAxis().ordinal();
+    int u = (axis + 1) % 3, v = (axis + 2) % 3;
+    float plane = direction.getAxisDirection() == Direction.AxisDirection.POSITIVE ? 1 : 0;
+    int corners = 0;
+    for (int k = 0; k < 4; ++k) {
+      int offset = k * IQuadTransformer.STRIDE + IQuadTransformer.POSITION;
+      float pa = Float.intBitsToFloat(vertices[offset + axis]);
+      float pu = Float.intBitsToFloat(vertices[offset + u]);
+      float pv = Float.intBitsToFloat(vertices[offset + v]);
+      if (Math.abs(pa - plane) > EPSILON) return false;
+      if (Math.abs(pu - Math.round(pu)) > EPSILON || Math.abs(pv - Math.round(pv)) > EPSILON) {
+        return false;
+      }
+      if (Math.round(pu) < 0 || Math.round(pu) > 1 || Math.round(pv) < 0 || Math.round(pv) > 1) {
+        return false;
+      }
+      corners |= 1 << (Math.round(pu) * 2 + Math.round(pv));
+    }
+    return corners == 0b1111;
+  }
+
+  /** Emits the quads of a block on one side, or those without a cull face if direction is null. */
+  private static void emitQuads(
+      StateMesh stateMesh,
+      Direction direction,
+      RandomSource random,
+      PoseStack pose,
+      Function<RenderType, VertexConsumer> buffers) {
+    for (RenderType type : stateMesh.renderTypes) {
+      random.setSeed(42);
+      List<BakedQuad> quads =
+          stateMesh.model.getQuads(stateMesh.state, direction, random, ModelData.EMPTY, type);
+      if (quads.isEmpty()) continue;
+      VertexConsumer consumer = buffers.apply(RenderTypeHelper.getEntityRenderType(type, false));
+      for (BakedQuad quad : quads) {
+        consumer.putBulkData(
+            pose.last(),
+            quad,
+            quad.isTinted() ? stateMesh.red : 1,
+            quad.isTinted() ? stateMesh.green : 1,
+            quad.isTinted() ? stateMesh.blue : 1,
+            1,
+            LightTexture.FULL_BRIGHT,
+            OverlayTexture.NO_OVERLAY);
+      }
+    }
+  }
+}
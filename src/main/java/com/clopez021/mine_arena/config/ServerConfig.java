@@ -1,6 +1,7 @@
 package com.clopez021.mine_arena.config;
 
 import com.clopez021.mine_arena.MineArena;
+import com.clopez021.mine_arena.model3d.util.ParallelVoxelizer;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -19,6 +20,16 @@ public class ServerConfig {
   // Meshy configuration
   public static String meshyApiKey;
 
+  // Model voxelization
+  public static int voxelizationThreads;
+  public static int spellVoxelBudget = 8192;
+
+  // Networking
+  public static int spellModelBytesPerTick = 32768;
+
+  // Spell effects
+  public static int effectBudgetMs = 10;
+
   public static final ForgeConfigSpec.ConfigValue<String> OPENROUTER_API_KEY =
       BUILDER.comment("OpenRouter API Key").define("openrouterApiKey", "YOUR_OPENROUTER_API_KEY");
 
@@ -30,6 +41,34 @@ public class ServerConfig {
   public static final ForgeConfigSpec.ConfigValue<String> MESHY_API_KEY =
       BUILDER.comment("Meshy API Key").define("meshyApiKey", "YOUR_API_KEY");
 
+  public static final ForgeConfigSpec.IntValue VOXELIZATION_THREADS =
+      BUILDER
+          .comment(
+              "Worker threads used to voxelize spell models, 0 uses every available core and 1"
+                  + " voxelizes on the calling thread")
+          .defineInRange("voxelizationThreads", 0, 0, 256);
+
+  public static final ForgeConfigSpec.IntValue SPELL_VOXEL_BUDGET =
+      BUILDER
+          .comment(
+              "Most blocks a spell model may have. Larger models are downsampled until they fit,"
+                  + " 0 disables the limit")
+          .defineInRange("spellVoxelBudget", 8192, 0, 1 << 20);
+
+  public static final ForgeConfigSpec.IntValue SPELL_MODEL_BYTES_PER_TICK =
+      BUILDER
+          .comment(
+              "Most spell model bytes streamed to each player per tick. Larger models are spread"
+                  + " over several ticks")
+          .defineInRange("spellModelBytesPerTick", 32768, 1024, 1 << 20);
+
+  public static final ForgeConfigSpec.IntValue EFFECT_BUDGET_MS =
+      BUILDER
+          .comment(
+              "Milliseconds per tick spent on spell impact effects like breaking blocks and"
+                  + " spawning entities. Effects left over carry on next tick")
+          .defineInRange("effectBudgetMs", 10, 1, 50);
+
   public static final ForgeConfigSpec SPEC = BUILDER.build();
 
   @SubscribeEvent
@@ -39,6 +78,11 @@ public class ServerConfig {
       openrouterApiKey = OPENROUTER_API_KEY.get();
       openrouterModel = OPENROUTER_MODEL.get();
       meshyApiKey = MESHY_API_KEY.get();
+      voxelizationThreads = VOXELIZATION_THREADS.get();
+      ParallelVoxelizer.setThreads(voxelizationThreads);
+      spellVoxelBudget = SPELL_VOXEL_BUDGET.get();
+      spellModelBytesPerTick = SPELL_MODEL_BYTES_PER_TICK.get();
+      effectBudgetMs = EFFECT_BUDGET_MS.get();
     }
   }
 }
@@ -1,9 +1,10 @@
 package com.clopez021.mine_arena.core.entity;
 
+import com.clopez021.mine_arena.network.SpellModelRegistry;
 import com.clopez021.mine_arena.spell.SpellCollisionHandler;
+import com.clopez021.mine_arena.spell.SpellTickSystem;
 import com.clopez021.mine_arena.spell.behavior.collision.SpellEffectBehaviorConfig;
 import com.clopez021.mine_arena.spell.config.SpellEntityConfig;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import net.minecraft.core.BlockPos;
@@ -11,6 +12,7 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.syncher.EntityDataAccessor;
 import net.minecraft.network.syncher.EntityDataSerializers;
 import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityDimensions;
@@ -20,16 +22,44 @@ import net.minecraft.world.entity.MoverType;
 import net.minecraft.world.entity.Pose;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.Vec3;
 import org.joml.Vector3f;
 
 public class SpellEntity extends Entity {
-  // ---- Synced key (entire config) ----
-  private static final EntityDataAccessor<CompoundTag> DATA_CONFIG =
+  // ---- Synced keys, split so a change to one part never resends or reparses the others ----
+  // Model hash, rotation buckets and scale; changes only with the spell's blocks
+  private static final EntityDataAccessor<CompoundTag> DATA_MODEL =
       SynchedEntityData.defineId(SpellEntity.class, EntityDataSerializers.COMPOUND_TAG);
+  private static final EntityDataAccessor<CompoundTag> DATA_BEHAVIOR =
+      SynchedEntityData.defineId(SpellEntity.class, EntityDataSerializers.COMPOUND_TAG);
+  // Movement flag, speed and direction
+  private static final EntityDataAccessor<CompoundTag> DATA_MOTION =
+      SynchedEntityData.defineId(SpellEntity.class, EntityDataSerializers.COMPOUND_TAG);
+
+  /** Resolves the model hashes spells are synced by. Installed by the client. */
+  @FunctionalInterface
+  public interface ModelSource {
+    /**
+     * @param hash The hash of a model.
+     * @param entityId The spell to update with {@link #onModelReceived()} once the model is ready,
+     *     if it is not at hand.
+     * @return The blocks of the model, or null if they are still being fetched.
+     */
+    Map<BlockPos, BlockState> resolve(String hash, int entityId);
+  }
+
+  // Set from client setup, so this common class never loads client code
+  private static ModelSource modelSource = (hash, entityId) -> null;
+
+  public static void setModelSource(ModelSource source) {
+    modelSource = source;
+  }
 
   // Local caches (handy for math/render)
   public final Vector3f minCorner = new Vector3f();
+  public final Vector3f maxCorner = new Vector3f();
 
   // Authoritative config (single source of truth)
   private SpellEntityConfig config = SpellEntityConfig.empty();
@@ -63,13 +93,20 @@ public class SpellEntity extends Entity {
 
   @Override
   protected void defineSynchedData(SynchedEntityData.Builder b) {
-    b.define(DATA_CONFIG, new CompoundTag());
+    b.define(DATA_MODEL, new CompoundTag());
+    b.define(DATA_BEHAVIOR, new CompoundTag());
+    b.define(DATA_MOTION, new CompoundTag());
   }
 
   // ---------------- Internal apply helpers (no side checks) ----------------
 
   private void pushConfigToSyncedData() {
-    this.entityData.set(DATA_CONFIG, this.config.toNBT());
+    // Trackers get the model hash and fetch blocks they have not cached. Parts equal to their
+    // synced value are not marked dirty, so only the parts that changed are sent.
+    this.entityData.set(DATA_MODEL, this.config.toModelSyncNBT());
+    SpellModelRegistry.register(this.config.getModelHash(), this.config.getPackedBlocks());
+    this.entityData.set(DATA_BEHAVIOR, this.config.getEffectBehavior().toNBT());
+    this.entityData.set(DATA_MOTION, this.config.toMotionNBT());
   }
 
   // Expose config-backed runtime state without duplicating storage
@@ -98,13 +135,32 @@ public class SpellEntity extends Entity {
   public void onSyncedDataUpdated(EntityDataAccessor<?> key) {
     super.onSyncedDataUpdated(key);
 
-    if (key == DATA_CONFIG) {
-      CompoundTag cfgTag = this.entityData.get(DATA_CONFIG);
-      this.config = SpellEntityConfig.fromNBT(cfgTag);
-      recalcBoundsFromBlocks();
+    if (!level().isClientSide) return;
+    if (key == DATA_MODEL) {
+      applySyncedModel();
+    } else if (key == DATA_BEHAVIOR) {
+      this.config.setEffectBehavior(
+          SpellEffectBehaviorConfig.fromNBT(this.entityData.get(DATA_BEHAVIOR)));
+    } else if (key == DATA_MOTION) {
+      this.config.applyMotionNBT(this.entityData.get(DATA_MOTION));
     }
   }
 
+  /** Called on the client once the model of a config synced by hash has been fetched. */
+  public void onModelReceived() {
+    if (this.config.isModelPending()) applySyncedModel();
+  }
+
+  private void applySyncedModel() {
+    CompoundTag model = this.entityData.get(DATA_MODEL);
+    String hash = model.getString("modelHash");
+    // Drawn as its placeholder until the model arrives
+    Map<BlockPos, BlockState> blocks =
+        hash.isEmpty() ? Map.of() : modelSource.resolve(hash, getId());
+    this.config.applyModelSyncNBT(model, blocks);
+    recalcBoundsFromBlocks();
+  }
+
   // ----------------- Persistence (server only) -----------------
   @Override
   protected void addAdditionalSaveData(CompoundTag tag) {
@@ -140,17 +196,10 @@ public class SpellEntity extends Entity {
       return;
     }
 
-    int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
-    int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-
-    for (BlockPos p : blocks.keySet()) {
-      minX = Math.min(minX, p.getX());
-      minY = Math.min(minY, p.getY());
-      minZ = Math.min(minZ, p.getZ());
-      maxX = Math.max(maxX, p.getX() + 1);
-      maxY = Math.max(maxY, p.getY() + 1);
-      maxZ = Math.max(maxZ, p.getZ() + 1);
-    }
+    // Synced bounds while the model is being fetched, so the placeholder has the model's size
+    int[] bounds = this.config.getBounds();
+    int minX = bounds[0], minY = bounds[1], minZ = bounds[2];
+    int maxX = bounds[3], maxY = bounds[4], maxZ = bounds[5];
 
     spanX = (maxX - minX) * microScale;
     spanY = (maxY - minY) * microScale;
@@ -160,8 +209,9 @@ public class SpellEntity extends Entity {
     centerLocalX = ((minX + maxX) * 0.5f) * microScale;
     centerLocalZ = ((minZ + maxZ) * 0.5f) * microScale;
 
-    // keep minCorner cache synced
+    // keep corner caches synced
     this.minCorner.set(minX, minY, minZ);
+    this.maxCorner.set(maxX, maxY, maxZ);
 
     // Update entity dimensions based on new bounds
     refreshDimensions();
@@ -184,8 +234,11 @@ public class SpellEntity extends Entity {
    * Updates and applies movement based on spell configuration. Computes desired motion from
    * config-provided direction and speed, then moves using vanilla pipeline for proper
    * networking/interpolation.
+   *
+   * @return The bounding box before the move.
    */
-  private void updateMovement() {
+  private AABB updateMovement() {
+    AABB startBox = this.getBoundingBox();
     float speed = Math.max(0f, this.config.getMovementSpeed());
     Vec3 v = this.config.getDirection(ownerPlayerId);
     boolean shouldMove = this.config.getShouldMove();
@@ -195,8 +248,10 @@ public class SpellEntity extends Entity {
     this.setDeltaMovement(motion);
     if (!motion.equals(Vec3.ZERO)) this.hasImpulse = true;
 
-    // Move using vanilla pipeline for proper networking/interpolation
+    // Move using vanilla pipeline for proper networking/interpolation. This sweeps the box
+    // against block shapes and stops at the first one, so spells cannot pass through blocks.
     this.move(MoverType.SELF, this.getDeltaMovement());
+    return startBox;
   }
 
   /** Handles on-cast effect triggers that activate immediately without requiring collision. */
@@ -212,23 +267,32 @@ public class SpellEntity extends Entity {
     }
   }
 
-  private void handleCollisionDetection() {
+  /**
+   * @param startBox The bounding box before this tick's move.
+   */
+  private void handleCollisionDetection(AABB startBox) {
     // Enhanced collision detection: blocks OR entities
     boolean blockCollision = this.onGround() || this.horizontalCollision || this.verticalCollision;
 
-    // Additional entity collision check using AABB overlap
+    // Sweep the box along the path it moved, which ends at any block it hit, so fast spells
+    // cannot pass through entities between ticks either
     boolean entityCollision = false;
-    if (!blockCollision) {
-      List<Entity> nearbyEntities =
-          this.level()
-              .getEntities(
+    if (this.level() instanceof ServerLevel serverLevel) {
+      AABB endBox = this.getBoundingBox();
+      EntityHitResult hit =
+          SpellTickSystem.get(serverLevel)
+              .sweep(
                   this,
-                  this.getBoundingBox(),
+                  startBox,
+                  endBox.getCenter().subtract(startBox.getCenter()),
                   entity ->
-                      entity != this
-                          && (this.ownerPlayerId == null
-                              || !entity.getUUID().equals(this.ownerPlayerId)));
-      entityCollision = !nearbyEntities.isEmpty();
+                      this.ownerPlayerId == null || !entity.getUUID().equals(this.ownerPlayerId));
+      if (hit != null) {
+        // Back up to the impact so effects are centered where the entity was hit
+        Vec3 centerToFeet = this.position().subtract(endBox.getCenter());
+        this.setPos(hit.getLocation().add(centerToFeet));
+        entityCollision = true;
+      }
     }
 
     boolean collidingNow = blockCollision || entityCollision;
@@ -257,9 +321,9 @@ public class SpellEntity extends Entity {
     // Increment cooldown timer
     if (ticksSinceLastTrigger < EFFECT_COOLDOWN_TICKS) ticksSinceLastTrigger++;
 
-    updateMovement();
+    AABB startBox = updateMovement();
     handleOnCastTriggers();
-    handleCollisionDetection();
+    handleCollisionDetection(startBox);
   }
 
   /** Initialize from SpellEntityConfig (server-side only). */
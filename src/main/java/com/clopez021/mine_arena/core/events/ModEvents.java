@@ -6,6 +6,7 @@ import java.io.File;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraftforge.registries.IdMappingEvent;
 
 public class ModEvents {
 
@@ -19,4 +20,14 @@ public class ModEvents {
       if (!folder.exists()) folder.mkdir();
     }
   }
+
+  /** Events fired on the Forge bus. */
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID, bus = Mod.EventBusSubscriber.Bus.FORGE)
+  public static class ModForgeEvents {
+    @SubscribeEvent
+    public static void onIdMapping(final IdMappingEvent event) {
+      // Registry ids were remapped, cached block states may point at stale entries
+      Palette.invalidateBlockStates();
+    }
+  }
 }
@@ -5,6 +5,7 @@ import static com.clopez021.mine_arena.config.ServerConfig.meshyApiKey;
 import com.clopez021.mine_arena.model3d.Model;
 import com.clopez021.mine_arena.model3d.ObjModel;
 import com.clopez021.mine_arena.util.ModelUtils;
+import com.clopez021.mine_arena.util.ModelUtils.SpellVoxels;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.io.*;
@@ -17,10 +18,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
 import java.util.function.IntConsumer;
-import net.minecraft.core.BlockPos;
-import net.minecraft.world.level.block.state.BlockState;
 
 public class MeshyClient {
 
@@ -29,10 +27,10 @@ public class MeshyClient {
    * deleted.
    *
    * @param prompt The text description for model generation
-   * @return Map of BlockPos to BlockState representing the voxelized model
+   * @return The voxelized model, fit to the spell voxel budget
    * @throws Exception if generation fails
    */
-  public static Map<BlockPos, BlockState> buildBlocksFromPrompt(String prompt) throws Exception {
+  public static SpellVoxels buildBlocksFromPrompt(String prompt) throws Exception {
     if (prompt == null || prompt.isEmpty())
       throw new IllegalArgumentException("prompt cannot be empty");
     IntConsumer noop = p -> {};
@@ -61,6 +59,7 @@ public class MeshyClient {
       renameInFile(mtlPath, "texture_0", textureName);
 
       Model model = new ObjModel(new File(objPath));
+      // Every generated model is new, caching it would only fill the disk
       return ModelUtils.buildVoxels(model);
     } finally {
       try {
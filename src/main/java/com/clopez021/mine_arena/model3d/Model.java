@@ -1,12 +1,13 @@
 package com.clopez021.mine_arena.model3d;
 
+import com.clopez021.mine_arena.model3d.util.Palette;
 import com.clopez021.mine_arena.model3d.util.Point;
 import com.clopez021.mine_arena.model3d.util.Triangle;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
@@ -30,23 +31,56 @@ public abstract class Model {
   public final Vector3f minCorner = new Vector3f(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE),
       maxCorner = new Vector3f(Float.MIN_VALUE, Float.MIN_VALUE, Float.MIN_VALUE);
 
-  /** Textures mapped to collection of points representing blocks. */
-  public final ConcurrentMap<String, Set<Point>> textureToBlocks = new ConcurrentHashMap<>();
+  /**
+   * Blocks of this Model mapped to the palette indices of their block states. Computed on first
+   * access and kept until the transformation changes.
+   */
+  private VoxelGrid voxels;
 
-  /** Points representing blocks mapped to integers representing which faces to render. */
-  public final ConcurrentMap<Point, Integer> renderFaces = new ConcurrentHashMap<>();
+  /** The transformation voxels was computed with. */
+  private Matrix4f voxelTransform;
+
+  /** The block states of voxels, resolved on first access. */
+  private Map<BlockPos, BlockState> blocks;
 
   /**
    * @return A 4x4 transformation from this Model's rotation and scale.
    */
   public Matrix4f getTransformationMatrix() {
+    return getTransformationMatrix(rotation, scale);
+  }
+
+  /**
+   * @param rotation A rotation.
+   * @param scale A scale.
+   * @return A 4x4 transformation from the rotation and scale, as a Model with them would have.
+   */
+  public static Matrix4f getTransformationMatrix(Quaternionf rotation, Vector3f scale) {
     return new Matrix4f().rotate(rotation).scale(scale);
   }
 
   /**
    * @return A map of block positions mapped to block states representing this 3d model as blocks.
+   *     The map is computed once and must not be modified.
    */
-  public abstract Map<BlockPos, BlockState> getTextureToBlocks();
+  public synchronized Map<BlockPos, BlockState> getTextureToBlocks() {
+    VoxelGrid grid = getVoxels();
+    if (blocks == null) blocks = Collections.unmodifiableMap(toBlockMap(grid));
+    return blocks;
+  }
+
+  /**
+   * @return Blocks of this Model mapped to palette indices, voxelized on first access.
+   */
+  public synchronized VoxelGrid getVoxels() {
+    Matrix4f transform = getTransformationMatrix();
+    if (voxels == null || !transform.equals(voxelTransform)) {
+      voxels = voxelize();
+      voxelTransform = transform;
+      blocks = null;
+    }
+    return voxels;
+  }
 
   /**
    * Computes whether to render a particular face.
@@ -56,16 +90,45 @@ public abstract class Model {
    * @return Whether to render.
    */
   public boolean shouldRenderFace(Point p, int faceNum) {
-    Point adj = new Point(p.x, p.y, p.z);
+    return shouldRenderFace((int) p.x, (int) p.y, (int) p.z, faceNum);
+  }
+
+  /**
+   * @see #shouldRenderFace(Point, int)
+   */
+  public boolean shouldRenderFace(int x, int y, int z, int faceNum) {
     switch (faceNum) {
-      case 0 -> --adj.x;
-      case 1 -> ++adj.x;
-      case 2 -> --adj.y;
-      case 3 -> ++adj.y;
-      case 4 -> --adj.z;
-      case 5 -> ++adj.z;
+      case 0 -> --x;
+      case 1 -> ++x;
+      case 2 -> --y;
+      case 3 -> ++y;
+      case 4 -> --z;
+      case 5 -> ++z;
     }
-    return !renderFaces.containsKey(adj);
+    return !getVoxels().contains(x, y, z);
+  }
+
+  /**
+   * @return The name of the texture of the preview block, or "air" if there is none.
+   */
+  public String getBlockTexture(int x, int y, int z) {
+    return Palette.getBlockTexture(getVoxels().get(x, y, z, Palette.AIR));
+  }
+
+  /**
+   * Resolves a grid of palette indices into block states. Each palette index is resolved once.
+   *
+   * @param grid A grid of palette indices.
+   * @return A map of block positions mapped to block states.
+   */
+  public static Map<BlockPos, BlockState> toBlockMap(VoxelGrid grid) {
+    Map<BlockPos, BlockState> blocks = new HashMap<>(grid.size() * 2);
+    Map<Integer, BlockState> states = new HashMap<>();
+    grid.forEach(
+        (x, y, z, index) ->
+            blocks.put(
+                new BlockPos(x, y, z), states.computeIfAbsent(index, Palette::getBlockState)));
+    return blocks;
   }
 
   /** Centers this Model. */
@@ -76,8 +139,12 @@ public abstract class Model {
    */
   public abstract List<Triangle> getTriangles();
 
-  /** Recalculates the blocks and faces to be rendered by this Model's preview. */
-  protected abstract void updateBlockFaces();
+  /**
+   * Voxelizes this Model with its current transformation.
+   *
+   * @return A grid of the palette index of each block.
+   */
+  protected abstract VoxelGrid voxelize();
 
   /**
    * @param xScale The scale to set the x-component to.
@@ -113,8 +180,6 @@ public abstract class Model {
    */
   public int placeBlocks(Level level) {
     int count = 0;
-    float prevPrecision = Point.precision;
-    Point.precision = 2f;
     for (Map.Entry<BlockPos, BlockState> entry : this.getTextureToBlocks().entrySet()) {
       BlockPos blockPos =
           entry
@@ -127,7 +192,6 @@ public abstract class Model {
       level.setBlockAndUpdate(blockPos, blockState);
       ++count;
     }
-    Point.precision = prevPrecision;
     return count;
   }
 }
@@ -0,0 +1,110 @@
+package com.clopez021.mine_arena.model3d;
+
+import com.clopez021.mine_arena.model3d.util.Palette;
+import com.clopez021.mine_arena.model3d.util.VoxelFile;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Voxelizes the bundled spell models at build time. The bakeSpellModels Gradle task runs {@link
+ * #main(String[])} and packages one {@link VoxelFile} per model under assets/mine_arena/baked, so
+ * the game never has to parse or voxelize the raw OBJ and texture files. A model whose OBJ is
+ * missing is skipped without a {@link VoxelFile}, and the build then keeps its raw files.
+ */
+public final class ModelBaker {
+  private ModelBaker() {}
+
+  /** The resource directory of the baked models, relative to the mod's assets. */
+  public static final String BAKED_DIRECTORY = "baked";
+
+  /**
+   * A bundled model and the rotation it is voxelized with.
+   *
+   * @param name The name of the model's directory and files.
+   * @param rotateX The rotation around the x-axis, in radians.
+   */
+  public record DefaultModel(String name, float rotateX) {
+    /** Applies this model's rotation to a loaded model. */
+    public void applyTo(Model model) {
+      if (rotateX != 0) model.rotation.rotateX(rotateX);
+    }
+
+    /**
+     * @return The transformation of the model once loaded and rotated by {@link #applyTo(Model)},
+     *     without loading it.
+     */
+    public Matrix4f transform() {
+      return Model.getTransformationMatrix(
+          new Quaternionf().rotateX(rotateX), new Vector3f(ObjModel.MODEL_SCALE));
+    }
+  }
+
+  /** The models used by the default spells. */
+  public static final List<DefaultModel> DEFAULT_MODELS =
+      List.of(
+          new DefaultModel("fireball", 0),
+          new DefaultModel("wind", 0),
+          new DefaultModel("ice_cube", 90),
+          new DefaultModel("bomb", 0));
+
+  /**
+   * @param name The name of a bundled model.
+   * @return The model with that name, or one without rotation if it is not a default model.
+   */
+  public static DefaultModel getDefaultModel(String name) {
+    for (DefaultModel model : DEFAULT_MODELS) {
+      if (model.name().equals(name)) return model;
+    }
+    return new DefaultModel(name, 0);
+  }
+
+  /**
+   * @param args The directory of the raw models, the palette JSON file and the output directory.
+   * @throws IOException The palette could not be read or a baked model could not be written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      System.err.println("Usage: ModelBaker <models directory> <palette.json> <output directory>");
+      System.exit(1);
+    }
+    File modelsDirectory = new File(args[0]);
+    File outputDirectory = new File(args[2]);
+    try (InputStream in = new FileInputStream(args[1])) {
+      Palette.loadColors(in);
+    }
+    outputDirectory.mkdirs();
+
+    for (DefaultModel defaultModel : DEFAULT_MODELS) {
+      String name = defaultModel.name();
+      File objFile = new File(modelsDirectory, name + "/" + name + ".obj");
+      File vox = new File(outputDirectory, name + ".vox");
+      if (!objFile.isFile()) {
+        // The build keeps the raw assets of models without a .vox, so drop any stale one
+        vox.delete();
+        System.err.println(
+            "Skipping " + name + ", " + objFile + " does not exist. Its raw assets are kept.");
+        continue;
+      }
+
+      long start = System.nanoTime();
+      ObjModel model = new ObjModel(objFile);
+      defaultModel.applyTo(model);
+      VoxelGrid voxels = model.getVoxels();
+      try (OutputStream out = new FileOutputStream(vox)) {
+        VoxelFile.write(out, voxels, Palette::getBlockName);
+      }
+      System.out.printf(
+          "Baked %s: %d voxels in %d ms%n",
+          name, voxels.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+}
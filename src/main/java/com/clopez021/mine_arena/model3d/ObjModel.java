@@ -1,16 +1,26 @@
 package com.clopez021.mine_arena.model3d;
 
+import com.clopez021.mine_arena.model3d.util.FloatList;
+import com.clopez021.mine_arena.model3d.util.IntList;
+import com.clopez021.mine_arena.model3d.util.MeshDecimator;
+import com.clopez021.mine_arena.model3d.util.ObjTokenizer;
 import com.clopez021.mine_arena.model3d.util.Palette;
+import com.clopez021.mine_arena.model3d.util.ParallelVoxelizer;
 import com.clopez021.mine_arena.model3d.util.Point;
+import com.clopez021.mine_arena.model3d.util.TextureSampler;
 import com.clopez021.mine_arena.model3d.util.Triangle;
+import com.clopez021.mine_arena.model3d.util.TriangleVoxelizer;
 import com.clopez021.mine_arena.model3d.util.VectorColors;
-import java.awt.image.BufferedImage;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import javax.imageio.ImageIO;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.state.BlockState;
+import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4i;
 
@@ -24,23 +34,34 @@ public class ObjModel extends Model {
   /** The default color for missing or unassigned textures. */
   public static final int DEFAULT_COLOR = (255 << 24) | (128 << 16) | (128 << 8) | 128;
 
+  /** How textures are sampled at each voxel. */
+  public static final TextureSampler.Filter TEXTURE_FILTER = TextureSampler.Filter.NEAREST;
+
   /**
-   * @param file A file to the texture to be opened.
-   * @return A BufferedImage representing the texture if opened successfully, null otherwise.
+   * How many texels to keep per voxel of surface a texture covers: 4x4 per voxel face. A voxel
+   * shows the one texel under its center, so a single texel per voxel would be enough for an even
+   * UV mapping, but the spare resolution keeps stretched regions of the mapping close to what the
+   * full texture shows. Textures larger than that are decoded subsampled.
    */
-  private static BufferedImage openTexture(File file) {
-    try {
-      return ImageIO.read(file);
-    } catch (Exception e) {
-      return null;
-    }
-  }
+  private static final int TEXELS_PER_VOXEL = 16;
+
+  /** The fewest texels kept of any texture. */
+  private static final int MIN_TEXELS = 64 * 64;
+
+  /**
+   * How many triangles to simplify the mesh to per voxel of its bounding box's surface. Voxels are
+   * far coarser than the meshes Meshy generates, so most triangles only ever cover a single cell.
+   */
+  private static final float TRIANGLES_PER_VOXEL = 2;
+
+  /** The furthest, in voxels, simplification may move the surface of the mesh. */
+  private static final float MAX_SIMPLIFY_ERROR = 0.25f;
 
   /**
    * Rotate a map of local block positions around Y (yaw) and X (pitch) axes by the given degrees.
-   * This mimics the renderer transform order: Y by -yaw, then X by +pitch. Positions are rotated as
-   * floats and then rounded to nearest integer cell; state facings/axis are updated by rotating
-   * their direction vectors and snapping to the nearest cardinal.
+   * This mimics the renderer transform order: Y by -yaw, then X by +pitch. The rotation is inverse
+   * mapped: every cell of the rotated bounding box samples the block under its center in the
+   * source, so the result has no holes and no two blocks land in the same cell.
    */
   public static Map<BlockPos, BlockState> rotateBlocks3D(
       Map<BlockPos, BlockState> blocks, float yawDegrees, float pitchDegrees) {
@@ -51,10 +72,22 @@ public class ObjModel extends Model {
     double yawRad = Math.toRadians(-yawDegrees);
     double pitchRad = Math.toRadians(pitchDegrees);
 
-    // Compute bounds center to use as rotation pivot (prevents orbiting)
+    // Index the source blocks and compute bounds center to use as rotation pivot
+    VoxelGrid source = new VoxelGrid(blocks.size());
+    List<BlockState> states = new ArrayList<>();
+    Map<BlockState, Integer> stateIndices = new HashMap<>();
     int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
     int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-    for (BlockPos p : blocks.keySet()) {
+    for (Map.Entry<BlockPos, BlockState> e : blocks.entrySet()) {
+      BlockPos p = e.getKey();
+      int index =
+          stateIndices.computeIfAbsent(
+              e.getValue(),
+              state -> {
+                states.add(state);
+                return states.size() - 1;
+              });
+      source.put(p.getX(), p.getY(), p.getZ(), index);
       minX = Math.min(minX, p.getX());
       minY = Math.min(minY, p.getY());
       minZ = Math.min(minZ, p.getZ());
@@ -69,122 +102,174 @@ public class ObjModel extends Model {
     double cosY = Math.cos(yawRad), sinY = Math.sin(yawRad);
     double cosP = Math.cos(pitchRad), sinP = Math.sin(pitchRad);
 
-    Map<BlockPos, BlockState> out = new HashMap<>(blocks.size());
-    for (Map.Entry<BlockPos, BlockState> e : blocks.entrySet()) {
-      BlockPos p = e.getKey();
-      BlockState state = e.getValue();
-
-      // Work with voxel centers to reduce rounding bias
-      double px = p.getX() + 0.5;
-      double py = p.getY() + 0.5;
-      double pz = p.getZ() + 0.5;
-
-      // Translate to pivot
-      double dx = px - cx;
-      double dy = py - cy;
-      double dz = pz - cz;
+    // Bounds of the rotated box, from its eight corners
+    double[] lo = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+    double[] hi = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+    for (int corner = 0; corner < 8; ++corner) {
+      double dx = ((corner & 1) == 0 ? minX : maxX) - cx;
+      double dy = ((corner & 2) == 0 ? minY : maxY) - cy;
+      double dz = ((corner & 4) == 0 ? minZ : maxZ) - cz;
 
-      // Pitch first (about X)
-      double x1 = dx;
+      // Pitch first (about X), then yaw (about Y)
       double y1 = dy * cosP - dz * sinP;
       double z1 = dy * sinP + dz * cosP;
+      double[] rotated = {dx * cosY + z1 * sinY, y1, -dx * sinY + z1 * cosY};
+      for (int axis = 0; axis < 3; ++axis) {
+        lo[axis] = Math.min(lo[axis], rotated[axis]);
+        hi[axis] = Math.max(hi[axis], rotated[axis]);
+      }
+    }
 
-      // Then yaw (about Y)
-      double x2 = x1 * cosY + z1 * sinY;
-      double y2 = y1;
-      double z2 = -x1 * sinY + z1 * cosY;
-
-      // Translate back from pivot
-      double xc = cx + x2;
-      double yc = cy + y2;
-      double zc = cz + z2;
-
-      // Map rotated center to integer cell (lower corner)
-      int rx = (int) Math.floor(xc);
-      int ry = (int) Math.floor(yc);
-      int rz = (int) Math.floor(zc);
-
-      out.put(new BlockPos(rx, ry, rz), state);
+    Map<BlockPos, BlockState> out = new HashMap<>(blocks.size() * 2);
+    int x0 = (int) Math.floor(cx + lo[0]), x1 = (int) Math.ceil(cx + hi[0]);
+    int y0 = (int) Math.floor(cy + lo[1]), y1 = (int) Math.ceil(cy + hi[1]);
+    int z0 = (int) Math.floor(cz + lo[2]), z1 = (int) Math.ceil(cz + hi[2]);
+    for (int x = x0; x < x1; ++x) {
+      for (int z = z0; z < z1; ++z) {
+        // Work with voxel centers, translated to the pivot
+        double dx = x + 0.5 - cx, dz = z + 0.5 - cz;
+
+        // Undo yaw (about Y)
+        double ux = dx * cosY - dz * sinY;
+        double uz = dx * sinY + dz * cosY;
+        for (int y = y0; y < y1; ++y) {
+          double dy = y + 0.5 - cy;
+
+          // Undo pitch (about X)
+          double sy = dy * cosP + uz * sinP;
+          double sz = -dy * sinP + uz * cosP;
+
+          int index =
+              source.get(
+                  (int) Math.floor(cx + ux),
+                  (int) Math.floor(cy + sy),
+                  (int) Math.floor(cz + sz),
+                  -1);
+          if (index >= 0) out.put(new BlockPos(x, y, z), states.get(index));
+        }
+      }
     }
     return out;
   }
 
-  /**
-   * @param img A BufferedImage representing a texture.
-   * @param x A number 0-1 representing the horizontal position in the texture.
-   * @param y A number 0-1 representing the vertical position in the texture.
-   * @return The color at the location in the texture as an integer, 0 if the texture is null.
-   */
-  private static int getColor(BufferedImage img, float x, float y) {
-    if (img == null) return DEFAULT_COLOR;
-    int width = img.getWidth();
-    int height = img.getHeight();
-    y = 1 - y;
-
-    int tx = (int) (x * width);
-    int ty = (int) (y * height);
-
-    tx = ((tx % width) + width) % width;
-    ty = ((ty % height) + height) % height;
-
-    return img.getRGB(tx, ty);
-  }
+  /** Material names by material index. */
+  private final List<String> materialNames = new ArrayList<>();
 
-  /** A Map that maps material names to a list of Faces that use that material. */
-  private final HashMap<String, List<Face>> materialFaceMap = new HashMap<>();
+  /** A Map that maps material names to material indices. */
+  private final HashMap<String, Integer> materialIndices = new HashMap<>();
 
   /** A Map that maps material names to Files to texture images. */
-  private final HashMap<String, BufferedImage> materialFileMap = new HashMap<>();
+  private final HashMap<String, File> materialTexturePaths = new HashMap<>();
+
+  /** A Map that maps material names to their textures. */
+  private final HashMap<String, TextureSampler> materialFileMap = new HashMap<>();
 
   /** A Map that maps material names to colors. */
   private final HashMap<String, Integer> materialColorMap = new HashMap<>();
 
-  /** A list of float arrays that represent xyz coordinates of a vertex. */
-  private final List<float[]> positionVertices = new ArrayList<>();
+  /** The xyz coordinates of every vertex, three floats per vertex. */
+  private final FloatList positionVertices = new FloatList(4096);
+
+  /** The uv coordinates of every texture vertex, two floats per vertex. */
+  private final FloatList textureVertices = new FloatList(4096);
+
+  /** The index of the first corner of each face. */
+  private final IntList faceStarts = new IntList(4096);
 
-  /** A list of float arrays that represent uv coordinates of a vertex. */
-  private final List<float[]> textureVertices = new ArrayList<>();
+  /** The material index of each face. */
+  private final IntList faceMaterials = new IntList(4096);
 
-  /** The name of the current material in the mtl or obj file. */
-  private String currentMaterial;
+  /** The vertex index of each face corner. */
+  private final IntList cornerVertices = new IntList(16384);
+
+  /** The texture vertex index of each face corner, -1 if the corner has none. */
+  private final IntList cornerTextures = new IntList(16384);
+
+  /** Scratch space for the corners of the face being read. */
+  private final IntList faceVertices = new IntList(), faceTextures = new IntList();
+
+  /** The vertex and texture vertex of each corner of the triangulated and simplified faces. */
+  private int[] meshVertices, meshTextures;
+
+  /** The material index of each simplified triangle. */
+  private int[] meshMaterials;
+
+  private int meshTriangleCount;
+
+  /** The size of a voxel, in model units, the mesh was simplified for. */
+  private float meshVoxelSize;
+
+  /** Triangles of every face, transformed and laid out for the voxelizer. */
+  private float[] triangleBuffer;
+
+  /** The material index of each triangle in the triangle buffer. */
+  private int[] triangleMaterials;
+
+  /** Textures and colors by material index for the triangle buffer. */
+  private TextureSampler[] materialTextures;
+
+  private int[] materialColors;
+
+  /** The transformation the triangle buffer was built with. */
+  private Matrix4f bufferedTransform;
+
+  /** The index of the current material in the mtl or obj file. */
+  private int currentMaterial;
 
   /** Base directory of the input OBJ/MTL files for resolving relative paths. */
   private final File baseDir;
 
+  /** The mtl file next to the obj file, which may not exist. */
+  private final File mtlFile;
+
+  /** True once the textures have been opened. */
+  private boolean texturesLoaded;
+
   /**
    * @param file A file to the obj file.
    * @throws IOException The file could not be opened.
    */
   public ObjModel(File file) throws IOException {
     this.baseDir = file.getParentFile();
-    readMtl(file);
-    currentMaterial = DEFAULT_MATERIAL;
-    materialFaceMap.put(currentMaterial, new ArrayList<>());
+    String objName = file.getName();
+    // Only resolve MTL relative to the OBJ's directory
+    this.mtlFile = new File(baseDir, objName.substring(0, objName.length() - 4) + ".mtl");
+    readMtl();
+    currentMaterial = addMaterial(DEFAULT_MATERIAL);
     readObj(file);
     setScale(MODEL_SCALE);
     centerModel();
-    updateBlockFaces();
   }
 
   /**
-   * @see Model#getTextureToBlocks()
+   * Hashes the raw source files of a model, so a model can be looked up in the voxel cache without
+   * parsing it.
+   *
+   * @param obj The bytes of the obj file.
+   * @param mtl The bytes of the mtl file, or null if there is none.
+   * @param textures The bytes of every texture the mtl file references that exists, by the path
+   *     it is referenced by.
+   * @return A hex SHA-256 digest of the files, or null if it cannot be computed.
    */
-  public Map<BlockPos, BlockState> getTextureToBlocks() {
-    Map<BlockPos, BlockState> blocks = new HashMap<>();
-    for (String material : materialFaceMap.keySet()) {
-      BufferedImage texture = materialFileMap.get(material);
-      for (Face face : materialFaceMap.get(material)) {
-        for (Point p : face.getBlockPoints()) {
-          int color =
-              texture != null
-                  ? ObjModel.getColor(texture, p.tx, p.ty)
-                  : materialColorMap.getOrDefault(material, -1);
-          BlockState blockState = Palette.getNearestBlock(color);
-          blocks.put(p.blockPos(), blockState);
-        }
+  public static String hashSources(byte[] obj, byte[] mtl, Map<String, byte[]> textures) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digestBytes(digest, obj);
+      digestBytes(digest, mtl != null ? mtl : new byte[0]);
+      for (Map.Entry<String, byte[]> entry : new TreeMap<>(textures).entrySet()) {
+        digestBytes(digest, entry.getKey().getBytes(StandardCharsets.UTF_8));
+        digestBytes(digest, entry.getValue());
       }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      return null;
     }
-    return blocks;
+  }
+
+  /** Digests the length of the bytes before them, so consecutive files cannot run together. */
+  private static void digestBytes(MessageDigest digest, byte[] bytes) {
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
   }
 
   /**
@@ -192,119 +277,254 @@ public class ObjModel extends Model {
    */
   protected void centerModel() {
     Vector3f center = maxCorner.sub(minCorner, new Vector3f()).div(2);
-    for (float[] xyz : positionVertices) {
-      xyz[0] -= minCorner.x + center.x;
-      xyz[1] -= minCorner.y + center.y;
-      xyz[2] -= minCorner.z + center.z;
+    float[] xyz = positionVertices.elements();
+    for (int i = 0; i < positionVertices.size(); i += 3) {
+      xyz[i] -= minCorner.x + center.x;
+      xyz[i + 1] -= minCorner.y + center.y;
+      xyz[i + 2] -= minCorner.z + center.z;
     }
     center.mul(-1, minCorner);
     center.mul(1, maxCorner);
   }
 
   /**
-   * @see Model#updateBlockFaces()
+   * Voxelizes every face of this Model in parallel.
+   *
+   * @see Model#voxelize()
    */
-  protected void updateBlockFaces() {
-    textureToBlocks.clear();
-    renderFaces.clear();
-    for (Map.Entry<String, List<Face>> entry : materialFaceMap.entrySet()) {
-      String material = entry.getKey();
-      List<Face> faces = entry.getValue();
-      BufferedImage texture = materialFileMap.get(material);
-      for (Face face : faces) {
-        for (Triangle triangle : face.getTriangles()) {
-          for (Point p : triangle.getBlockPoints(new HashSet<>())) {
-            int color =
-                texture != null
-                    ? ObjModel.getColor(texture, p.tx, p.ty)
-                    : materialColorMap.getOrDefault(material, -1);
-            String blockTexture = Palette.getNearestBlockTexture(color);
-            if (!blockTexture.equals("air"))
-              textureToBlocks
-                  .computeIfAbsent(blockTexture, ignored -> ConcurrentHashMap.newKeySet())
-                  .add(p);
-            renderFaces.putIfAbsent(p, 0);
-          }
-        }
-      }
+  protected VoxelGrid voxelize() {
+    if (!texturesLoaded) loadTextures();
+    Matrix4f transform = getTransformationMatrix();
+    if (triangleBuffer == null || !transform.equals(bufferedTransform)) {
+      buildTriangleBuffer(transform);
     }
+    int[] materials = triangleMaterials;
+    TextureSampler[] textures = materialTextures;
+    int[] colors = materialColors;
+    return ParallelVoxelizer.voxelize(
+        triangleBuffer,
+        materials.length,
+        (triangle, tx, ty) -> {
+          int material = materials[triangle];
+          TextureSampler texture = textures[material];
+          int color =
+              texture != null ? texture.sample(tx, ty, TEXTURE_FILTER) : colors[material];
+          return Palette.getNearestBlockIndex(color);
+        });
   }
 
   /**
-   * Reads and parses the mtl file line by line.
+   * Triangulates every face of this Model once for the given transformation so the preview and the
+   * blocks are voxelized from the same buffer.
    *
-   * @param file A file to the mtl file.
-   * @throws IOException The file could not be opened or read.
+   * @param transform The transformation to apply to every vertex.
    */
-  private void readMtl(File file) throws IOException {
-    String objName = file.getName();
-    String baseName = objName.substring(0, objName.length() - 4);
-    // Only resolve MTL relative to the OBJ's directory
-    File mtlFile = new File(baseDir, baseName + ".mtl");
-    if (!mtlFile.exists()) return;
-
-    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(mtlFile))) {
-      String line;
-      while ((line = bufferedReader.readLine()) != null) {
-        readMtlLine(line.strip().replaceAll(" +", " ").split(" ", 2));
-      }
+  private void buildTriangleBuffer(Matrix4f transform) {
+    Vector3f scale = transform.getScale(new Vector3f());
+    simplifyMesh(1 / Math.max(scale.x, Math.max(scale.y, scale.z)));
+
+    int count = meshTriangleCount;
+    float[] buffer = new float[count * ParallelVoxelizer.TRIANGLE_STRIDE];
+    int[] materials = Arrays.copyOf(meshMaterials, count);
+    updateMaterials();
+
+    int offset = 0;
+    for (int corner = 0; corner < count * 3; ++corner) {
+      offset = putCorner(buffer, offset, meshVertices[corner], meshTextures[corner], transform);
     }
+
+    triangleBuffer = buffer;
+    triangleMaterials = materials;
+    bufferedTransform = new Matrix4f(transform);
   }
 
   /**
-   * Reads the first string in the array and calls the appropriate method to parse the array of
-   * strings.
+   * Triangulates every face and simplifies the triangles with {@link MeshDecimator} for voxels of
+   * the given size. The simplified mesh stays within a fraction of a voxel of the original surface,
+   * so it voxelizes to nearly the same blocks while the voxelizer walks far fewer triangles.
    *
-   * @param line An array of strings representing a line from the mtl file.
+   * @param voxelSize The size of a voxel in model units.
    */
-  private void readMtlLine(String[] line) {
-    try {
-      switch (line[0]) {
-        case "newmtl" -> readNewMtl(line);
-        case "map_Kd" -> readMapKd(line);
-        case "Kd" -> readKd(line);
+  private void simplifyMesh(float voxelSize) {
+    if (meshVertices != null && voxelSize == meshVoxelSize) return;
+
+    int faceCount = faceStarts.size();
+    int count = 0;
+    for (int face = 0; face < faceCount; ++face) count += getFaceSize(face) - 2;
+    int[] vertices = new int[count * 3], textures = new int[count * 3], materials = new int[count];
+
+    int triangle = 0;
+    for (int face = 0; face < faceCount; ++face) {
+      int start = faceStarts.get(face), end = start + getFaceSize(face);
+      for (int corner = start + 1; corner < end - 1; ++corner) {
+        int i = triangle * 3;
+        vertices[i] = cornerVertices.get(start);
+        vertices[i + 1] = cornerVertices.get(corner);
+        vertices[i + 2] = cornerVertices.get(corner + 1);
+        textures[i] = cornerTextures.get(start);
+        textures[i + 1] = cornerTextures.get(corner);
+        textures[i + 2] = cornerTextures.get(corner + 1);
+        materials[triangle++] = faceMaterials.get(face);
       }
-    } catch (Exception e) {
-      e.printStackTrace();
     }
+
+    if (voxelSize > 0 && Float.isFinite(voxelSize)) {
+      Vector3f size = maxCorner.sub(minCorner, new Vector3f()).div(voxelSize);
+      double surface = 2.0 * (size.x * size.y + size.y * size.z + size.z * size.x);
+      int target = (int) Math.min(count, Math.ceil(surface * TRIANGLES_PER_VOXEL));
+      count =
+          MeshDecimator.decimate(
+              positionVertices.elements(),
+              vertices,
+              textures,
+              materials,
+              count,
+              target,
+              MAX_SIMPLIFY_ERROR * voxelSize);
+    }
+
+    meshVertices = vertices;
+    meshTextures = textures;
+    meshMaterials = materials;
+    meshTriangleCount = count;
+    meshVoxelSize = voxelSize;
+  }
+
+  /** Looks up the texture and color of every material for the voxelizer. */
+  private void updateMaterials() {
+    materialTextures = new TextureSampler[materialNames.size()];
+    materialColors = new int[materialNames.size()];
+    for (int material = 0; material < materialNames.size(); ++material) {
+      String name = materialNames.get(material);
+      materialTextures[material] = materialFileMap.get(name);
+      materialColors[material] = materialColorMap.getOrDefault(name, -1);
+    }
+  }
+
+  /**
+   * Opens the texture of every material at a resolution chosen from the surface area, in voxels,
+   * of the faces using it at the current scale. Textures are opened on the first voxelization, so
+   * models whose blocks are already cached never decode them.
+   */
+  private void loadTextures() {
+    texturesLoaded = true;
+    if (materialTexturePaths.isEmpty()) return;
+    buildTriangleBuffer(getTransformationMatrix());
+
+    double[] areas = new double[materialNames.size()];
+    float[] v = triangleBuffer;
+    int stride = TriangleVoxelizer.VERTEX_STRIDE;
+    for (int t = 0; t < triangleMaterials.length; ++t) {
+      int a = t * ParallelVoxelizer.TRIANGLE_STRIDE, b = a + stride, c = b + stride;
+      Vector3f ab = new Vector3f(v[b] - v[a], v[b + 1] - v[a + 1], v[b + 2] - v[a + 2]);
+      Vector3f ac = new Vector3f(v[c] - v[a], v[c + 1] - v[a + 1], v[c + 2] - v[a + 2]);
+      areas[triangleMaterials[t]] += ab.cross(ac).length() / 2;
+    }
+
+    for (Map.Entry<String, File> entry : materialTexturePaths.entrySet()) {
+      Integer material = materialIndices.get(entry.getKey());
+      double area = material != null ? areas[material] : 0;
+      long texels = Math.max(MIN_TEXELS, (long) Math.ceil(area * TEXELS_PER_VOXEL));
+      TextureSampler texture = TextureSampler.load(entry.getValue(), texels);
+      if (texture != null) materialFileMap.put(entry.getKey(), texture);
+    }
+    updateMaterials();
+  }
+
+  /**
+   * Writes the transformed position and the texture coordinates of a triangle corner to the buffer.
+   *
+   * @param vertex The vertex index of the corner.
+   * @param texture The texture vertex index of the corner, -1 if it has none.
+   * @return The offset after the corner.
+   */
+  private int putCorner(float[] buffer, int offset, int vertex, int texture, Matrix4f m) {
+    float[] xyz = positionVertices.elements();
+    int v = vertex * 3;
+    float x = xyz[v], y = xyz[v + 1], z = xyz[v + 2];
+    buffer[offset++] = Math.fma(m.m00(), x, Math.fma(m.m10(), y, Math.fma(m.m20(), z, m.m30())));
+    buffer[offset++] = Math.fma(m.m01(), x, Math.fma(m.m11(), y, Math.fma(m.m21(), z, m.m31())));
+    buffer[offset++] = Math.fma(m.m02(), x, Math.fma(m.m12(), y, Math.fma(m.m22(), z, m.m32())));
+    int t = texture * 2;
+    buffer[offset++] = t >= 0 ? textureVertices.get(t) : 0;
+    buffer[offset++] = t >= 0 ? textureVertices.get(t + 1) : 0;
+    return offset;
+  }
+
+  /**
+   * @return The number of corners of the face.
+   */
+  private int getFaceSize(int face) {
+    int end = face + 1 < faceStarts.size() ? faceStarts.get(face + 1) : cornerVertices.size();
+    return end - faceStarts.get(face);
+  }
+
+  /**
+   * Registers a material if it has not been seen yet.
+   *
+   * @return The index of the material.
+   */
+  private int addMaterial(String name) {
+    Integer index = materialIndices.get(name);
+    if (index != null) return index;
+    materialNames.add(name);
+    materialIndices.put(name, materialNames.size() - 1);
+    return materialNames.size() - 1;
   }
 
   /**
-   * Parses the array of strings and sets currentMaterial to the material referenced by the command.
-   * Adds a new List to materialFaceMap for this material.
+   * Reads and parses the mtl file line by line.
    *
-   * @param line An array of strings representing a newmtl command.
+   * @throws IOException The file could not be opened or read.
    */
-  private void readNewMtl(String[] line) {
-    currentMaterial = line[1];
-    materialFaceMap.put(currentMaterial, new ArrayList<>());
+  private void readMtl() throws IOException {
+    if (!mtlFile.exists()) return;
+
+    ObjTokenizer tokenizer = ObjTokenizer.open(mtlFile.toPath());
+    String material = DEFAULT_MATERIAL;
+    while (tokenizer.nextLine()) {
+      try {
+        if (tokenizer.isKeyword("newmtl")) {
+          material = tokenizer.rest();
+          addMaterial(material);
+        } else if (tokenizer.isKeyword("map_Kd")) {
+          readMapKd(material, tokenizer.rest());
+        } else if (tokenizer.isKeyword("Kd")) {
+          readKd(material, tokenizer);
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
   }
 
   /**
-   * Parses the array of strings and adds a File to materialFileMap
+   * Records the texture of a material in materialTexturePaths. Textures are opened once the size of
+   * the model is known.
    *
-   * @param line An array of strings representing a map_kd command.
+   * @param material The name of the material.
+   * @param path The path of the texture from a map_Kd command.
    */
-  private void readMapKd(String[] line) {
+  private void readMapKd(String material, String path) {
     // Resolve texture path strictly relative to the OBJ/MTL directory
-    File texturePath = new File(baseDir, line[1]);
+    File texturePath = new File(baseDir, path);
     if (texturePath.isFile()) {
-      materialFileMap.put(currentMaterial, ObjModel.openTexture(texturePath));
+      materialTexturePaths.put(material, texturePath);
     }
   }
 
   /**
-   * Parses the array of strings and adds
+   * Parses the color of a Kd command and adds it to materialColorMap.
    *
-   * @param line An array of strings representing a Kd command.
+   * @param material The name of the material.
+   * @param tokenizer A tokenizer positioned after the Kd keyword.
    */
-  private void readKd(String[] line) {
-    String[] colors = line[1].split(" ");
-    int red = (int) (Float.parseFloat(colors[0]) * 255),
-        green = (int) (Float.parseFloat(colors[1]) * 255),
-        blue = (int) (Float.parseFloat(colors[2]) * 255);
+  private void readKd(String material, ObjTokenizer tokenizer) {
+    int red = (int) (tokenizer.nextFloat() * 255),
+        green = (int) (tokenizer.nextFloat() * 255),
+        blue = (int) (tokenizer.nextFloat() * 255);
     int color = VectorColors.ARGBToInt(new Vector4i(255, red, green, blue));
-    materialColorMap.put(currentMaterial, color);
+    materialColorMap.put(material, color);
   }
 
   /**
@@ -314,181 +534,118 @@ public class ObjModel extends Model {
    * @throws IOException The file could not be opened or read.
    */
   private void readObj(File file) throws IOException {
-    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-      String line;
-      while ((line = bufferedReader.readLine()) != null) {
-        readObjLine(line.strip().replaceAll(" +", " ").split(" "));
+    ObjTokenizer tokenizer = ObjTokenizer.open(file.toPath());
+    while (tokenizer.nextLine()) {
+      try {
+        if (tokenizer.isKeyword("v")) readVertex(tokenizer);
+        else if (tokenizer.isKeyword("vt")) readTextureVertex(tokenizer);
+        else if (tokenizer.isKeyword("usemtl")) readUseMaterial(tokenizer);
+        else if (tokenizer.isKeyword("f")) readFace(tokenizer);
+      } catch (Exception e) {
+        e.printStackTrace();
       }
     }
   }
 
   /**
-   * Reads the first string in the array and calls the appropriate method to parse the array of
-   * strings.
+   * Parses a vertex command and adds the position to this model's position vertices.
    *
-   * @param line An array of strings representing a line from the obj file.
+   * @param tokenizer A tokenizer positioned after the v keyword.
    */
-  private void readObjLine(String[] line) {
-    try {
-      switch (line[0]) {
-        case "v" -> readVertex(line);
-        case "vt" -> readTextureVertex(line);
-        case "usemtl" -> readUseMaterial(line);
-        case "f" -> readFace(line);
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+  private void readVertex(ObjTokenizer tokenizer) {
+    float x = tokenizer.nextFloat(), y = tokenizer.nextFloat(), z = tokenizer.nextFloat();
+    positionVertices.add(x);
+    positionVertices.add(y);
+    positionVertices.add(z);
+    minCorner.set(Math.min(minCorner.x, x), Math.min(minCorner.y, y), Math.min(minCorner.z, z));
+    maxCorner.set(Math.max(maxCorner.x, x), Math.max(maxCorner.y, y), Math.max(maxCorner.z, z));
   }
 
   /**
-   * Parses the array of strings and adds the position vertex as a float array to this model's list
-   * of position vertices.
+   * Parses a texture vertex command and adds the uv coordinates to this model's texture vertices.
    *
-   * @param line An array of strings representing a vertex command.
+   * @param tokenizer A tokenizer positioned after the vt keyword.
    */
-  private void readVertex(String[] line) {
-    float x = Float.parseFloat(line[1]),
-        y = Float.parseFloat(line[2]),
-        z = Float.parseFloat(line[3]);
-    positionVertices.add(new float[] {x, y, z});
-    Vector3f temp = new Vector3f(x, y, z);
-    minCorner.min(temp);
-    maxCorner.max(temp);
+  private void readTextureVertex(ObjTokenizer tokenizer) {
+    float u = tokenizer.nextFloat(), v = tokenizer.nextFloat();
+    textureVertices.add(u);
+    textureVertices.add(v);
   }
 
   /**
-   * Parses the array of strings and adds the texture vertex as a float array to this model's list
-   * of texture vertices.
+   * Sets the current material if the material was defined in the mtl file.
    *
-   * @param line An array of strings representing a texture vertex command.
+   * @param tokenizer A tokenizer positioned after the usemtl keyword.
    */
-  private void readTextureVertex(String[] line) {
-    textureVertices.add(new float[] {Float.parseFloat(line[1]), Float.parseFloat(line[2])});
+  private void readUseMaterial(ObjTokenizer tokenizer) {
+    Integer material = tokenizer.hasNext() ? materialIndices.get(tokenizer.rest()) : null;
+    currentMaterial = material != null ? material : materialIndices.get(DEFAULT_MATERIAL);
   }
 
   /**
-   * Parses the array of strings and sets the current material if the material was defined in the
-   * mtl file.
+   * Parses a face command and adds its corners to this model's faces using the current material.
+   * Faces that reference missing vertices are skipped.
    *
-   * @param line An array of strings representing a usemtl command.
+   * @param tokenizer A tokenizer positioned after the f keyword.
    */
-  private void readUseMaterial(String[] line) {
-    currentMaterial = DEFAULT_MATERIAL;
-    if (line.length > 1 && materialFaceMap.containsKey(line[1])) currentMaterial = line[1];
-  }
+  private void readFace(ObjTokenizer tokenizer) {
+    int vertexCount = positionVertices.size() / 3;
+    int textureCount = textureVertices.size() / 2;
+    faceVertices.clear();
+    faceTextures.clear();
+    while (tokenizer.hasNext()) {
+      int vertexIndex = tokenizer.nextInt();
+      vertexIndex = vertexIndex < 0 ? vertexCount + vertexIndex : vertexIndex - 1;
+      if (vertexIndex < 0 || vertexIndex >= vertexCount)
+        throw new IndexOutOfBoundsException("Face references missing vertex " + vertexIndex);
+      int textureIndex = -1;
+      if (tokenizer.skipSlash() && tokenizer.atNumber()) {
+        textureIndex = tokenizer.nextInt();
+        textureIndex = textureIndex < 0 ? textureCount + textureIndex : textureIndex - 1;
+        if (textureIndex < 0 || textureIndex >= textureCount) textureIndex = -1;
+      }
+      tokenizer.skipToken();
+      faceVertices.add(vertexIndex);
+      faceTextures.add(textureIndex);
+    }
+    if (faceVertices.size() < 3) return;
 
-  /**
-   * Parses the array of strings and adds the face to the corresponding list of Faces based on the
-   * current material.
-   *
-   * @param line An array of strings representing a face command.
-   */
-  private void readFace(String[] line) {
-    materialFaceMap.get(currentMaterial).add(new Face(line));
+    faceStarts.add(cornerVertices.size());
+    faceMaterials.add(currentMaterial);
+    for (int i = 0; i < faceVertices.size(); ++i) {
+      cornerVertices.add(faceVertices.get(i));
+      cornerTextures.add(faceTextures.get(i));
+    }
   }
 
   /**
    * @see Model#getTriangles()
    */
   public List<Triangle> getTriangles() {
+    Matrix4f transform = getTransformationMatrix();
     List<Triangle> triangles = new ArrayList<>();
-    for (Map.Entry<String, List<Face>> entry : materialFaceMap.entrySet()) {
-      List<Face> faces = entry.getValue();
-      for (Face face : faces) {
-        face.getTriangles(triangles);
+    for (int face = 0; face < faceStarts.size(); ++face) {
+      int start = faceStarts.get(face), end = start + getFaceSize(face);
+      Point p1 = getCorner(start, transform);
+      for (int corner = start + 1; corner < end - 1; ++corner) {
+        triangles.add(
+            new Triangle(p1, getCorner(corner, transform), getCorner(corner + 1, transform)));
       }
     }
     return triangles;
   }
 
-  /** Represents a face in an obj model. */
-  private class Face {
-    /** An array of indices corresponding to vertices in the obj model. */
-    private final int[] vertexIndices;
-
-    /** An array of indices corresponding to texture vertices in the obj model. */
-    private final int[] textureIndices;
-
-    /** The number of vertices that make up the Face. */
-    private final int numVertices;
-
-    /** True if there are indices to texture vertices, false otherwise. */
-    private boolean textured;
-
-    /**
-     * @param line An array of strings containing face data.
-     */
-    private Face(String[] line) {
-      numVertices = line.length - 1;
-      vertexIndices = new int[numVertices];
-      textureIndices = new int[numVertices];
-      for (int i = 1; i < line.length; ++i) {
-        String[] numbers = line[i].split("/");
-        int vertexIndex = Integer.parseInt(numbers[0]);
-        vertexIndex = vertexIndex < 0 ? positionVertices.size() + vertexIndex : vertexIndex - 1;
-        vertexIndices[i - 1] = vertexIndex;
-        if (numbers.length >= 2 && !numbers[1].isEmpty()) {
-          int textureIndex = Integer.parseInt(numbers[1]);
-          textureIndex =
-              textureIndex < 0 ? textureVertices.size() + textureIndex : textureIndex - 1;
-          textureIndices[i - 1] = textureIndex;
-          textured = true;
-        }
-      }
-    }
-
-    /**
-     * @return A list of Points representing the vertices that make up this Face, transformed into
-     *     world coordinates.
-     */
-    private List<Point> getVertices() {
-      List<Point> vertices = new ArrayList<>();
-      for (int i = 0; i < numVertices; ++i) {
-        float[] xyz = positionVertices.get(vertexIndices[i]);
-        float[] uv = new float[2];
-        if (textured) uv = textureVertices.get(textureIndices[i]);
-        vertices.add(new Point(xyz, uv).transformed(ObjModel.this.getTransformationMatrix()));
-      }
-      return vertices;
-    }
-
-    /**
-     * @return A list of Triangles that make up this Face.
-     */
-    private List<Triangle> getTriangles() {
-      List<Triangle> triangles = new ArrayList<>();
-      List<Point> vertices = getVertices();
-      Point p1 = vertices.get(0);
-      for (int i = 1; i < numVertices - 1; ++i) {
-        Point p2 = vertices.get(i);
-        Point p3 = vertices.get(i + 1);
-        triangles.add(new Triangle(p1, p2, p3));
-      }
-      return triangles;
-    }
-
-    /**
-     * @return A list of Triangles that make up this Face.
-     */
-    private List<Triangle> getTriangles(List<Triangle> triangles) {
-      List<Point> vertices = getVertices();
-      Point p1 = vertices.get(0);
-      for (int i = 1; i < numVertices - 1; ++i) {
-        Point p2 = vertices.get(i);
-        Point p3 = vertices.get(i + 1);
-        triangles.add(new Triangle(p1, p2, p3));
-      }
-      return triangles;
-    }
-
-    /**
-     * @return A set of points inside the polygon described by this Face using integer coordinates.
-     */
-    private Set<Point> getBlockPoints() {
-      Set<Point> blockPoints = new HashSet<>();
-      for (Triangle triangle : getTriangles()) triangle.getBlockPoints(blockPoints);
-      return blockPoints;
-    }
+  /**
+   * @return A Point for a face corner, transformed into world coordinates.
+   */
+  private Point getCorner(int corner, Matrix4f transform) {
+    int v = cornerVertices.get(corner) * 3, t = cornerTextures.get(corner) * 2;
+    return new Point(
+            positionVertices.get(v),
+            positionVertices.get(v + 1),
+            positionVertices.get(v + 2),
+            t >= 0 ? textureVertices.get(t) : 0,
+            t >= 0 ? textureVertices.get(t + 1) : 0)
+        .transformed(transform);
   }
 }
@@ -0,0 +1,153 @@
+package com.clopez021.mine_arena.model3d.util;
+
+/**
+ * A k-d tree over RGB colors for finding the nearest color of a palette by squared RGB distance.
+ * The tree is stored implicitly in arrays: the median of each range is the node and the two halves
+ * are its subtrees. Lookups only read the arrays, so one tree can be shared between threads.
+ */
+public class ColorTree {
+  /** Channels of each node, already split in tree order. */
+  private final int[] red, green, blue;
+
+  /** The value of each node. */
+  private final int[] values;
+
+  /** The channel each node splits on: 0 red, 1 green, 2 blue. */
+  private final byte[] axes;
+
+  /**
+   * @param colors RGB colors of the palette. The alpha channel is ignored.
+   * @param values The value returned for each color, usually its palette index.
+   */
+  public ColorTree(int[] colors, int[] values) {
+    int n = colors.length;
+    this.red = new int[n];
+    this.green = new int[n];
+    this.blue = new int[n];
+    this.values = values.clone();
+    this.axes = new byte[n];
+    for (int i = 0; i < n; ++i) {
+      red[i] = colors[i] >> 16 & 0xFF;
+      green[i] = colors[i] >> 8 & 0xFF;
+      blue[i] = colors[i] & 0xFF;
+    }
+    build(0, n);
+  }
+
+  /**
+   * @return True if the tree has no colors.
+   */
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  /**
+   * @param color An RGB color. The alpha channel is ignored.
+   * @param defaultValue The value to return if the tree is empty.
+   * @return The value of the nearest color in the tree.
+   */
+  public int nearest(int color, int defaultValue) {
+    if (values.length == 0) return defaultValue;
+    Search search = new Search(color >> 16 & 0xFF, color >> 8 & 0xFF, color & 0xFF);
+    search.visit(0, values.length);
+    return values[search.best];
+  }
+
+  /** Sorts the range into a subtree split on its widest channel. */
+  private void build(int from, int to) {
+    if (to - from <= 1) return;
+    int axis = widestAxis(from, to);
+    int mid = (from + to) >>> 1;
+    select(from, to - 1, mid, axis);
+    axes[mid] = (byte) axis;
+    build(from, mid);
+    build(mid + 1, to);
+  }
+
+  private int widestAxis(int from, int to) {
+    int best = 0, bestSpread = -1;
+    for (int axis = 0; axis < 3; ++axis) {
+      int[] channel = channel(axis);
+      int min = 255, max = 0;
+      for (int i = from; i < to; ++i) {
+        min = Math.min(min, channel[i]);
+        max = Math.max(max, channel[i]);
+      }
+      if (max - min > bestSpread) {
+        bestSpread = max - min;
+        best = axis;
+      }
+    }
+    return best;
+  }
+
+  /** Partially sorts the range so the k-th entry holds the median along the axis (quickselect). */
+  private void select(int left, int right, int k, int axis) {
+    int[] channel = channel(axis);
+    while (left < right) {
+      int pivot = channel[(left + right) >>> 1];
+      int i = left, j = right;
+      while (i <= j) {
+        while (channel[i] < pivot) ++i;
+        while (channel[j] > pivot) --j;
+        if (i <= j) swap(i++, j--);
+      }
+      if (k <= j) right = j;
+      else if (k >= i) left = i;
+      else return;
+    }
+  }
+
+  private void swap(int i, int j) {
+    swapEntries(red, i, j);
+    swapEntries(green, i, j);
+    swapEntries(blue, i, j);
+    swapEntries(values, i, j);
+  }
+
+  private static void swapEntries(int[] array, int i, int j) {
+    int temp = array[i];
+    array[i] = array[j];
+    array[j] = temp;
+  }
+
+  private int[] channel(int axis) {
+    return axis == 0 ? red : axis == 1 ? green : blue;
+  }
+
+  /** The state of a single nearest color search. */
+  private class Search {
+    private final int r, g, b;
+    private int best = -1;
+    private int bestDistance = Integer.MAX_VALUE;
+
+    private Search(int r, int g, int b) {
+      this.r = r;
+      this.g = g;
+      this.b = b;
+    }
+
+    private void visit(int from, int to) {
+      if (from >= to) return;
+      int mid = (from + to) >>> 1;
+      int dr = red[mid] - r, dg = green[mid] - g, db = blue[mid] - b;
+      int distance = dr * dr + dg * dg + db * db;
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = mid;
+      }
+      if (to - from == 1) return;
+
+      int axis = axes[mid];
+      int delta = axis == 0 ? r - red[mid] : axis == 1 ? g - green[mid] : b - blue[mid];
+      // Search the side of the split the color is on first, then the other side if it can be closer
+      if (delta < 0) {
+        visit(from, mid);
+        if (delta * delta < bestDistance) visit(mid + 1, to);
+      } else {
+        visit(mid + 1, to);
+        if (delta * delta < bestDistance) visit(from, mid);
+      }
+    }
+  }
+}
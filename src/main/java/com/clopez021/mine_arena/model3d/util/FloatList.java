@@ -0,0 +1,44 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.util.Arrays;
+
+/** A growable array of primitive floats. */
+public class FloatList {
+  private float[] elements;
+  private int size;
+
+  public FloatList() {
+    this(16);
+  }
+
+  /**
+   * @param capacity The number of floats the list holds before it grows.
+   */
+  public FloatList(int capacity) {
+    elements = new float[Math.max(1, capacity)];
+  }
+
+  public void add(float value) {
+    if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+    elements[size++] = value;
+  }
+
+  public float get(int index) {
+    return elements[index];
+  }
+
+  public void set(int index, float value) {
+    elements[index] = value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return The backing array. Only the first {@link #size()} floats are valid.
+   */
+  public float[] elements() {
+    return elements;
+  }
+}
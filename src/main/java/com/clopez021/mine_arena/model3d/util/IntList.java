@@ -0,0 +1,49 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.util.Arrays;
+
+/** A growable array of primitive ints. */
+public class IntList {
+  private int[] elements;
+  private int size;
+
+  public IntList() {
+    this(16);
+  }
+
+  /**
+   * @param capacity The number of ints the list holds before it grows.
+   */
+  public IntList(int capacity) {
+    elements = new int[Math.max(1, capacity)];
+  }
+
+  public void add(int value) {
+    if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+    elements[size++] = value;
+  }
+
+  public int get(int index) {
+    return elements[index];
+  }
+
+  public void set(int index, int value) {
+    elements[index] = value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Removes every int from the list without shrinking it. */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return The backing array. Only the first {@link #size()} ints are valid.
+   */
+  public int[] elements() {
+    return elements;
+  }
+}
@@ -0,0 +1,342 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies triangle meshes with quadric error metrics (Garland and Heckbert). Each vertex keeps
+ * the sum of the planes of the triangles around it, and edges are collapsed cheapest first by
+ * moving one end onto the other, until the mesh reaches its target size or the next collapse would
+ * move the surface further than the allowed error.
+ *
+ * <p>Collapses only ever move a vertex onto an existing vertex, so the kept vertex also keeps its
+ * texture coordinates. Vertices on open boundaries, texture seams and material borders never move,
+ * which keeps textures and outlines in place.
+ */
+public final class MeshDecimator {
+  private MeshDecimator() {}
+
+  /** Marks a vertex whose corners disagree on their texture or material. */
+  private static final int SEAM = -2;
+
+  /**
+   * Simplifies a mesh in place. The remaining triangles are moved to the front of the arrays in
+   * their original order.
+   *
+   * @param positions The xyz coordinates of every vertex, three floats per vertex.
+   * @param vertices The vertex index of each triangle corner, three per triangle.
+   * @param textures The texture vertex index of each triangle corner, -1 if it has none.
+   * @param materials The material index of each triangle.
+   * @param triangleCount The number of triangles in the arrays.
+   * @param targetTriangles The number of triangles to stop at.
+   * @param maxError The furthest, in model units, any part of the surface may move.
+   * @return The number of triangles left.
+   */
+  public static int decimate(
+      float[] positions,
+      int[] vertices,
+      int[] textures,
+      int[] materials,
+      int triangleCount,
+      int targetTriangles,
+      float maxError) {
+    if (triangleCount <= targetTriangles) return triangleCount;
+    return new Mesh(positions, vertices, textures, materials, triangleCount)
+        .decimate(targetTriangles, (double) maxError * maxError);
+  }
+
+  /** A pending collapse of one vertex onto a neighbor. */
+  private record Collapse(double cost, int from, int to, int fromStamp, int toStamp)
+      implements Comparable<Collapse> {
+    @Override
+    public int compareTo(Collapse other) {
+      return Double.compare(cost, other.cost);
+    }
+  }
+
+  private static final class Mesh {
+    private final float[] positions;
+    private final int[] vertices, textures, materials;
+    private final int triangleCount;
+
+    /** The ten unique coefficients of each vertex's symmetric 4x4 error quadric. */
+    private final double[] quadrics;
+
+    /** The triangles around each vertex, including ones that were removed since. */
+    private final IntList[] vertexTriangles;
+
+    /** The texture vertex and material shared by every corner of a vertex, or {@link #SEAM}. */
+    private final int[] vertexTextures, vertexMaterials;
+
+    private final boolean[] locked, removedTriangles;
+
+    /** Bumped whenever a vertex is collapsed or gains triangles, to expire its collapses. */
+    private final int[] stamps;
+
+    /** Marks vertices while checking a collapse. */
+    private final int[] marks;
+
+    private int mark;
+
+    private final PriorityQueue<Collapse> queue = new PriorityQueue<>();
+
+    private Mesh(float[] positions, int[] vertices, int[] textures, int[] materials, int count) {
+      this.positions = positions;
+      this.vertices = vertices;
+      this.textures = textures;
+      this.materials = materials;
+      this.triangleCount = count;
+
+      int vertexCount = positions.length / 3;
+      quadrics = new double[vertexCount * 10];
+      vertexTriangles = new IntList[vertexCount];
+      vertexTextures = new int[vertexCount];
+      vertexMaterials = new int[vertexCount];
+      locked = new boolean[vertexCount];
+      removedTriangles = new boolean[count];
+      stamps = new int[vertexCount];
+      marks = new int[vertexCount];
+
+      Arrays.fill(vertexTextures, -1);
+      Arrays.fill(vertexMaterials, -1);
+      for (int t = 0; t < count; ++t) {
+        addPlane(t);
+        for (int i = 0; i < 3; ++i) {
+          int v = vertices[t * 3 + i];
+          if (vertexTriangles[v] == null) {
+            vertexTriangles[v] = new IntList(8);
+            vertexTextures[v] = textures[t * 3 + i];
+            vertexMaterials[v] = materials[t];
+          } else {
+            if (vertexTextures[v] != textures[t * 3 + i]) vertexTextures[v] = SEAM;
+            if (vertexMaterials[v] != materials[t]) vertexMaterials[v] = SEAM;
+          }
+          vertexTriangles[v].add(t);
+        }
+      }
+      for (int v = 0; v < vertexCount; ++v) {
+        if (vertexTextures[v] == SEAM || vertexMaterials[v] == SEAM) locked[v] = true;
+      }
+
+      // Sort every edge to find the ones used by a single triangle and queue each edge once
+      long[] edges = new long[count * 3];
+      for (int t = 0; t < count; ++t) {
+        for (int i = 0; i < 3; ++i) {
+          int a = vertices[t * 3 + i], b = vertices[t * 3 + (i + 1) % 3];
+          edges[t * 3 + i] = (long) Math.min(a, b) << 32 | Math.max(a, b);
+        }
+      }
+      Arrays.sort(edges);
+      for (int i = 0; i < edges.length; ) {
+        int end = i + 1;
+        while (end < edges.length && edges[end] == edges[i]) ++end;
+        if (end - i == 1) {
+          locked[(int) (edges[i] >>> 32)] = true;
+          locked[(int) edges[i]] = true;
+        }
+        i = end;
+      }
+      for (int i = 0; i < edges.length; ++i) {
+        if (i > 0 && edges[i] == edges[i - 1]) continue;
+        queueCollapses((int) (edges[i] >>> 32), (int) edges[i]);
+      }
+    }
+
+    /** Adds the plane of a triangle to the quadrics of its vertices. */
+    private void addPlane(int t) {
+      int a = vertices[t * 3] * 3, b = vertices[t * 3 + 1] * 3, c = vertices[t * 3 + 2] * 3;
+      double abx = positions[b] - positions[a], aby = positions[b + 1] - positions[a + 1];
+      double abz = positions[b + 2] - positions[a + 2];
+      double acx = positions[c] - positions[a], acy = positions[c + 1] - positions[a + 1];
+      double acz = positions[c + 2] - positions[a + 2];
+      double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+      double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+      if (length == 0) return;
+      nx /= length;
+      ny /= length;
+      nz /= length;
+      double d = -(nx * positions[a] + ny * positions[a + 1] + nz * positions[a + 2]);
+      double[] plane = {
+        nx * nx, nx * ny, nx * nz, nx * d, ny * ny, ny * nz, ny * d, nz * nz, nz * d, d * d
+      };
+      for (int i = 0; i < 3; ++i) {
+        int q = vertices[t * 3 + i] * 10;
+        for (int j = 0; j < 10; ++j) quadrics[q + j] += plane[j];
+      }
+    }
+
+    /** Queues the cheaper of the two directions an edge can collapse in. */
+    private void queueCollapses(int a, int b) {
+      double costAB = canMove(a, b) ? cost(a, b) : Double.MAX_VALUE;
+      double costBA = canMove(b, a) ? cost(b, a) : Double.MAX_VALUE;
+      if (costAB == Double.MAX_VALUE && costBA == Double.MAX_VALUE) return;
+      if (costAB <= costBA) queue.add(new Collapse(costAB, a, b, stamps[a], stamps[b]));
+      else queue.add(new Collapse(costBA, b, a, stamps[b], stamps[a]));
+    }
+
+    /**
+     * @return Whether the corners of from can take the texture vertex of to.
+     */
+    private boolean canMove(int from, int to) {
+      return !locked[from]
+          && vertexTextures[to] != SEAM
+          && vertexMaterials[to] == vertexMaterials[from];
+    }
+
+    /**
+     * @return The summed squared distance of to from the planes around both vertices.
+     */
+    private double cost(int from, int to) {
+      int p = to * 3, a = from * 10, b = to * 10;
+      double x = positions[p], y = positions[p + 1], z = positions[p + 2];
+      double[] q = quadrics;
+      return (q[a] + q[b]) * x * x
+          + 2 * (q[a + 1] + q[b + 1]) * x * y
+          + 2 * (q[a + 2] + q[b + 2]) * x * z
+          + 2 * (q[a + 3] + q[b + 3]) * x
+          + (q[a + 4] + q[b + 4]) * y * y
+          + 2 * (q[a + 5] + q[b + 5]) * y * z
+          + 2 * (q[a + 6] + q[b + 6]) * y
+          + (q[a + 7] + q[b + 7]) * z * z
+          + 2 * (q[a + 8] + q[b + 8]) * z
+          + (q[a + 9] + q[b + 9]);
+    }
+
+    private int decimate(int targetTriangles, double maxCost) {
+      int remaining = triangleCount;
+      while (remaining > targetTriangles && !queue.isEmpty()) {
+        Collapse collapse = queue.poll();
+        if (collapse.cost > maxCost) break;
+        int from = collapse.from, to = collapse.to;
+        if (stamps[from] != collapse.fromStamp || stamps[to] != collapse.toStamp) continue;
+        if (!isManifoldCollapse(from, to) || flipsTriangle(from, to)) continue;
+        remaining -= collapse(from, to);
+      }
+
+      // Compact the remaining triangles to the front in their original order
+      int kept = 0;
+      for (int t = 0; t < triangleCount; ++t) {
+        if (removedTriangles[t]) continue;
+        if (kept != t) {
+          System.arraycopy(vertices, t * 3, vertices, kept * 3, 3);
+          System.arraycopy(textures, t * 3, textures, kept * 3, 3);
+          materials[kept] = materials[t];
+        }
+        ++kept;
+      }
+      return kept;
+    }
+
+    /**
+     * Checks the link condition: the only neighbors from and to share are the far corners of the
+     * triangles along their edge. Collapsing any other edge would pinch the surface.
+     */
+    private boolean isManifoldCollapse(int from, int to) {
+      ++mark;
+      IntList fromTriangles = vertexTriangles[from];
+      for (int i = 0; i < fromTriangles.size(); ++i) {
+        int t = fromTriangles.get(i);
+        if (removedTriangles[t]) continue;
+        for (int j = 0; j < 3; ++j) marks[vertices[t * 3 + j]] = mark;
+      }
+
+      int shared = 0, edgeTriangles = 0;
+      int sharedMark = ++mark;
+      IntList toTriangles = vertexTriangles[to];
+      for (int i = 0; i < toTriangles.size(); ++i) {
+        int t = toTriangles.get(i);
+        if (removedTriangles[t]) continue;
+        if (contains(t, from)) ++edgeTriangles;
+        for (int j = 0; j < 3; ++j) {
+          int v = vertices[t * 3 + j];
+          if (v != from && v != to && marks[v] == sharedMark - 1) {
+            marks[v] = sharedMark;
+            ++shared;
+          }
+        }
+      }
+      return edgeTriangles > 0 && shared == edgeTriangles;
+    }
+
+    /**
+     * @return Whether moving from onto to turns any triangle around from upside down.
+     */
+    private boolean flipsTriangle(int from, int to) {
+      IntList triangles = vertexTriangles[from];
+      for (int i = 0; i < triangles.size(); ++i) {
+        int t = triangles.get(i);
+        if (removedTriangles[t] || contains(t, to)) continue;
+        double[] before = normal(t, -1, -1);
+        double[] after = normal(t, from, to);
+        double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+        if (dot <= 0) return true;
+      }
+      return false;
+    }
+
+    /**
+     * @return The unnormalized normal of a triangle with one vertex replaced by another.
+     */
+    private double[] normal(int t, int replace, int with) {
+      int a = vertices[t * 3], b = vertices[t * 3 + 1], c = vertices[t * 3 + 2];
+      a = (a == replace ? with : a) * 3;
+      b = (b == replace ? with : b) * 3;
+      c = (c == replace ? with : c) * 3;
+      double abx = positions[b] - positions[a], aby = positions[b + 1] - positions[a + 1];
+      double abz = positions[b + 2] - positions[a + 2];
+      double acx = positions[c] - positions[a], acy = positions[c + 1] - positions[a + 1];
+      double acz = positions[c + 2] - positions[a + 2];
+      return new double[] {aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+    }
+
+    private boolean contains(int t, int v) {
+      return vertices[t * 3] == v || vertices[t * 3 + 1] == v || vertices[t * 3 + 2] == v;
+    }
+
+    /**
+     * Moves from onto to, removing the triangles along their edge.
+     *
+     * @return The number of triangles removed.
+     */
+    private int collapse(int from, int to) {
+      int removed = 0;
+      IntList fromTriangles = vertexTriangles[from];
+      IntList toTriangles = vertexTriangles[to];
+      for (int i = 0; i < fromTriangles.size(); ++i) {
+        int t = fromTriangles.get(i);
+        if (removedTriangles[t]) continue;
+        if (contains(t, to)) {
+          removedTriangles[t] = true;
+          ++removed;
+          continue;
+        }
+        for (int j = 0; j < 3; ++j) {
+          if (vertices[t * 3 + j] == from) {
+            vertices[t * 3 + j] = to;
+            textures[t * 3 + j] = vertexTextures[to];
+          }
+        }
+        toTriangles.add(t);
+      }
+      fromTriangles.clear();
+
+      for (int j = 0; j < 10; ++j) quadrics[to * 10 + j] += quadrics[from * 10 + j];
+      ++stamps[from];
+      ++stamps[to];
+
+      // Only the costs of edges around the kept vertex changed, queue those again
+      ++mark;
+      for (int i = 0; i < toTriangles.size(); ++i) {
+        int t = toTriangles.get(i);
+        if (removedTriangles[t]) continue;
+        for (int j = 0; j < 3; ++j) {
+          int v = vertices[t * 3 + j];
+          if (v == to || marks[v] == mark) continue;
+          marks[v] = mark;
+          queueCollapses(to, v);
+        }
+      }
+      return removed;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads obj and mtl files line by line straight from their bytes. Keywords are compared and numbers
+ * are parsed in place, so no String is created unless a line is asked for its text.
+ */
+public class ObjTokenizer {
+  /** Powers of ten that are exactly representable as doubles. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /** The most significant digits kept while parsing a number. */
+  private static final int MAX_DIGITS = 18;
+
+  private final ByteBuffer buffer;
+  private final int limit;
+
+  /** The position of the next byte to read. */
+  private int pos;
+
+  /** The end of the current line, exclusive. */
+  private int lineEnd = -1;
+
+  /** The bounds of the keyword of the current line. */
+  private int keywordStart, keywordEnd;
+
+  /**
+   * @param buffer The bytes to read, from its position to its limit.
+   */
+  public ObjTokenizer(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.pos = buffer.position();
+    this.limit = buffer.limit();
+    this.lineEnd = pos - 1;
+  }
+
+  /**
+   * Reads a whole file with a single read into one buffer.
+   *
+   * @param path The file to read.
+   * @return A tokenizer over the contents of the file.
+   * @throws IOException The file could not be opened or read.
+   */
+  public static ObjTokenizer open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) throw new IOException("File too large: " + path);
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+      buffer.flip();
+      return new ObjTokenizer(buffer);
+    }
+  }
+
+  /**
+   * Advances to the next line that is not blank or a comment and reads its keyword.
+   *
+   * @return False if there are no more lines.
+   */
+  public boolean nextLine() {
+    int start = lineEnd + 1;
+    while (start < limit) {
+      int end = start;
+      while (end < limit && buffer.get(end) != '\n') ++end;
+      lineEnd = end;
+
+      int i = start;
+      while (i < end && isSpace(buffer.get(i))) ++i;
+      if (i < end && buffer.get(i) != '#') {
+        keywordStart = i;
+        while (i < end && !isSpace(buffer.get(i))) ++i;
+        keywordEnd = i;
+        pos = i;
+        return true;
+      }
+      start = end + 1;
+    }
+    lineEnd = limit;
+    pos = limit;
+    return false;
+  }
+
+  /**
+   * @return True if the keyword of the current line is the given keyword.
+   */
+  public boolean isKeyword(String keyword) {
+    if (keywordEnd - keywordStart != keyword.length()) return false;
+    for (int i = 0; i < keyword.length(); ++i) {
+      if (buffer.get(keywordStart + i) != keyword.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return True if there is another token on the current line.
+   */
+  public boolean hasNext() {
+    skipSpaces();
+    return pos < lineEnd && buffer.get(pos) != '#';
+  }
+
+  /**
+   * @return The next whitespace separated token of the current line as a float.
+   * @throws NumberFormatException The token is not a number.
+   */
+  public float nextFloat() {
+    skipSpaces();
+    int i = pos;
+    boolean negative = false;
+    if (i < lineEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+      negative = buffer.get(i) == '-';
+      ++i;
+    }
+
+    long mantissa = 0;
+    int exponent = 0, digits = 0;
+    boolean anyDigits = false;
+    byte b;
+    while (i < lineEnd && isDigit(b = buffer.get(i))) {
+      anyDigits = true;
+      if (digits < MAX_DIGITS) {
+        mantissa = mantissa * 10 + (b - '0');
+        if (mantissa != 0) ++digits;
+      } else {
+        ++exponent;
+      }
+      ++i;
+    }
+    if (i < lineEnd && buffer.get(i) == '.') {
+      ++i;
+      while (i < lineEnd && isDigit(b = buffer.get(i))) {
+        anyDigits = true;
+        if (digits < MAX_DIGITS) {
+          mantissa = mantissa * 10 + (b - '0');
+          if (mantissa != 0) ++digits;
+          --exponent;
+        }
+        ++i;
+      }
+    }
+    if (!anyDigits) throw new NumberFormatException("Expected a number at byte " + pos);
+
+    if (i < lineEnd && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+      ++i;
+      boolean negativeExponent = false;
+      if (i < lineEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+        negativeExponent = buffer.get(i) == '-';
+        ++i;
+      }
+      int value = 0;
+      boolean anyExponentDigits = false;
+      while (i < lineEnd && isDigit(b = buffer.get(i))) {
+        anyExponentDigits = true;
+        value = Math.min(value * 10 + (b - '0'), 1000);
+        ++i;
+      }
+      if (!anyExponentDigits) throw new NumberFormatException("Bad exponent at byte " + pos);
+      exponent += negativeExponent ? -value : value;
+    }
+    if (i < lineEnd && !isSpace(buffer.get(i)))
+      throw new NumberFormatException("Unexpected character at byte " + i);
+    pos = i;
+
+    double value = mantissa;
+    if (exponent < 0 && exponent >= -22) value /= POWERS_OF_TEN[-exponent];
+    else if (exponent > 0 && exponent <= 22) value *= POWERS_OF_TEN[exponent];
+    else if (exponent != 0) value *= Math.pow(10, exponent);
+    return (float) (negative ? -value : value);
+  }
+
+  /**
+   * Parses an integer at the current position. Unlike {@link #nextFloat()} it stops at the first
+   * character that is not a digit, so it can read the parts of a face vertex like "1/2/3".
+   *
+   * @return The integer.
+   * @throws NumberFormatException There is no integer at the current position.
+   */
+  public int nextInt() {
+    skipSpaces();
+    int i = pos;
+    boolean negative = false;
+    if (i < lineEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+      negative = buffer.get(i) == '-';
+      ++i;
+    }
+    int start = i;
+    int value = 0;
+    byte b;
+    while (i < lineEnd && isDigit(b = buffer.get(i))) {
+      value = value * 10 + (b - '0');
+      ++i;
+    }
+    if (i == start) throw new NumberFormatException("Expected an integer at byte " + pos);
+    pos = i;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Consumes a '/' if it is the next character.
+   *
+   * @return True if a '/' was consumed.
+   */
+  public boolean skipSlash() {
+    if (pos < lineEnd && buffer.get(pos) == '/') {
+      ++pos;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return True if the next character starts a number.
+   */
+  public boolean atNumber() {
+    if (pos >= lineEnd) return false;
+    byte b = buffer.get(pos);
+    return isDigit(b) || b == '-' || b == '+';
+  }
+
+  /** Skips the rest of the current token. */
+  public void skipToken() {
+    while (pos < lineEnd && !isSpace(buffer.get(pos))) ++pos;
+  }
+
+  /**
+   * @return The rest of the current line without surrounding whitespace.
+   */
+  public String rest() {
+    skipSpaces();
+    int end = lineEnd;
+    while (end > pos && isSpace(buffer.get(end - 1))) --end;
+    byte[] bytes = new byte[end - pos];
+    buffer.get(pos, bytes);
+    pos = lineEnd;
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void skipSpaces() {
+    while (pos < lineEnd && isSpace(buffer.get(pos))) ++pos;
+  }
+
+  private static boolean isSpace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+}
@@ -0,0 +1,207 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Packs voxels into a small byte array for NBT and network sync. The array holds a table of block
+ * names followed by runs of voxels along the z-axis with the same block. Each run is stored as
+ * varints: its start relative to the start of the previous run, its length and its index into the
+ * table. Runs are sorted, so most deltas fit in a single byte.
+ */
+public final class PackedVoxels {
+  private PackedVoxels() {}
+
+  /** Bump whenever the layout changes. */
+  private static final int VERSION = 1;
+
+  /** Added to each coordinate so sorted keys follow the coordinates' numeric order. */
+  private static final int OFFSET = 1 << 20;
+
+  private static final int BITS = 21;
+
+  private static final long MASK = (1L << BITS) - 1;
+
+  /**
+   * The most voxels decoded from one array. Run lengths are free to encode, so without a limit a
+   * few corrupt bytes could make decoding fill billions of voxels. Well above the largest spell
+   * voxel budget.
+   */
+  public static final int MAX_VOXELS = 1 << 22;
+
+  /**
+   * @param grid The voxels to pack.
+   * @param names The block name of each value in the grid.
+   * @return The packed voxels.
+   */
+  public static byte[] encode(VoxelGrid grid, IntFunction<String> names) {
+    long[] keys = new long[grid.size()];
+    int[] count = {0};
+    grid.forEach(
+        (x, y, z, value) ->
+            keys[count[0]++] =
+                ((long) (x + OFFSET) & MASK) << (2 * BITS)
+                    | ((long) (y + OFFSET) & MASK) << BITS
+                    | ((long) (z + OFFSET) & MASK));
+    Arrays.sort(keys);
+
+    Map<Integer, Integer> indices = new HashMap<>();
+    List<String> table = new ArrayList<>();
+    ByteArrayOutputStream runs = new ByteArrayOutputStream(keys.length * 2);
+    int runCount = 0;
+    int previousX = 0, previousY = 0, previousZ = 0;
+    for (int i = 0; i < keys.length; ) {
+      // Values are read back from the grid, so no voxel is boxed into a map
+      int x = (int) (keys[i] >>> (2 * BITS)) - OFFSET;
+      int y = (int) (keys[i] >>> BITS & MASK) - OFFSET;
+      int z = (int) (keys[i] & MASK) - OFFSET;
+      int value = grid.get(x, y, z, -1);
+      int end = i + 1;
+      while (end < keys.length
+          && keys[end] == keys[end - 1] + 1
+          && grid.get(x, y, z + end - i, -1) == value) {
+        ++end;
+      }
+
+      int index =
+          indices.computeIfAbsent(
+              value,
+              v -> {
+                table.add(names.apply(v));
+                return table.size() - 1;
+              });
+      writeVarInt(runs, zigzag(x - previousX));
+      writeVarInt(runs, zigzag(y - previousY));
+      writeVarInt(runs, zigzag(z - previousZ));
+      writeVarInt(runs, end - i - 1);
+      writeVarInt(runs, index);
+      previousX = x;
+      previousY = y;
+      previousZ = z;
+      ++runCount;
+      i = end;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(runs.size() + table.size() * 16 + 8);
+    writeVarInt(out, VERSION);
+    writeVarInt(out, table.size());
+    for (String name : table) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(out, bytes.length);
+      out.writeBytes(bytes);
+    }
+    writeVarInt(out, runCount);
+    out.writeBytes(runs.toByteArray());
+    return out.toByteArray();
+  }
+
+  /**
+   * @param bytes Voxels packed by {@link #encode(VoxelGrid, IntFunction)}.
+   * @param indexOf Maps each block name to the value stored in the grid, or -1 to leave the voxels
+   *     of an unknown block out.
+   * @return The unpacked voxels.
+   * @throws IllegalArgumentException The bytes are not packed voxels, hold more than {@link
+   *     #MAX_VOXELS} or coordinates that do not fit in a {@link VoxelGrid}.
+   */
+  public static VoxelGrid decode(byte[] bytes, ToIntFunction<String> indexOf) {
+    Reader in = new Reader(bytes);
+    int version = in.readVarInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported packed voxel version " + version);
+    }
+
+    int[] values = new int[in.readCount()];
+    for (int i = 0; i < values.length; ++i) {
+      int length = in.readCount();
+      values[i] = indexOf.applyAsInt(in.readString(length));
+    }
+
+    int runCount = in.readCount();
+    VoxelGrid grid = new VoxelGrid(runCount * 2);
+    int x = 0, y = 0, z = 0;
+    int remaining = MAX_VOXELS;
+    for (int run = 0; run < runCount; ++run) {
+      x += unzigzag(in.readVarInt());
+      y += unzigzag(in.readVarInt());
+      z += unzigzag(in.readVarInt());
+      int length = in.readVarInt() + 1;
+      int index = in.readVarInt();
+      if (length <= 0 || length > remaining || index < 0 || index >= values.length) {
+        throw new IllegalArgumentException("Malformed packed voxel run");
+      }
+      // Coordinates out of range would alias other voxels in the grid
+      if (outOfRange(x) || outOfRange(y) || outOfRange(z) || outOfRange(z + (long) length - 1)) {
+        throw new IllegalArgumentException("Packed voxel run out of range");
+      }
+      remaining -= length;
+      if (values[index] < 0) continue;
+      for (int i = 0; i < length; ++i) grid.put(x, y, z + i, values[index]);
+    }
+    return grid;
+  }
+
+  private static boolean outOfRange(long coordinate) {
+    return coordinate < -OFFSET || coordinate >= OFFSET;
+  }
+
+  private static int zigzag(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  private static int unzigzag(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /** Reads varints and strings from a byte array, rejecting truncated or oversized input. */
+  private static final class Reader {
+    private final byte[] bytes;
+    private int position;
+
+    Reader(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        if (position >= bytes.length) throw new IllegalArgumentException("Truncated packed voxels");
+        byte b = bytes[position++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) return value;
+      }
+      throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * @return A varint that counts entries, each of which takes at least one more byte.
+     */
+    int readCount() {
+      int count = readVarInt();
+      if (count < 0 || count > bytes.length - position) {
+        throw new IllegalArgumentException("Bad count " + count);
+      }
+      return count;
+    }
+
+    String readString(int length) {
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+  }
+}
@@ -1,28 +1,63 @@
 package com.clopez021.mine_arena.model3d.util;
 
 import static com.clopez021.mine_arena.MineArena.MOD_ID;
-import static com.clopez021.mine_arena.model3d.util.VectorColors.intToARGB;
 
 import com.clopez021.mine_arena.model3d.ObjModel;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.registries.ForgeRegistries;
-import org.joml.Vector4i;
 
-/** A class for creating a quantized palette and writing it to a file. */
+/** A class for matching colors to the nearest colored block of the palette. */
 public class Palette {
-  /** How much to increment the quantized colors by. */
-  private static final int base = 8;
+  /** The palette index of air. */
+  public static final int AIR = 0;
 
-  /** A Map of colors as Integers mapped to block names. */
-  private static Map<Integer, String> palette = new HashMap<>();
+  /** The number of colors remembered by the nearest block cache. Must be a power of two. */
+  private static final int CACHE_SIZE = 1 << 16;
+
+  /**
+   * Multiplying by an odd number permutes the 24-bit colors, so the low bits of the product pick a
+   * cache slot and the high bits identify the color within it.
+   */
+  private static final int CACHE_SCRAMBLE = 0x9E3779B1;
+
+  private static final int CACHE_BITS = Integer.numberOfTrailingZeros(CACHE_SIZE);
+
+  /** A nearest color index over the block colors of the palette. Null until it is loaded. */
+  private static volatile ColorTree palette;
+
+  /**
+   * Remembered nearest blocks, one int per slot: the color tag in the high byte and the palette
+   * index plus one in the low 24 bits, 0 if the slot is empty. Each slot is a single int so threads
+   * can share the cache without locking.
+   */
+  private static volatile int[] nearestCache = new int[CACHE_SIZE];
+
+  /** Block states by palette index, resolved from the registry on first use. */
+  private static volatile BlockState[] blockStates = new BlockState[0];
+
+  /** Texture names by palette index. */
+  private static volatile String[] textures = new String[0];
+
+  /** Block colors by palette index, 0 for blocks the palette has no color for. */
+  private static volatile int[] colors = new int[0];
+
+  /** Block names by palette index. Index 0 is air. */
+  private static final List<String> blockNames = new ArrayList<>(List.of("air"));
+
+  /** Block names mapped to their palette indices. */
+  private static final Map<String, Integer> blockIndices = new HashMap<>(Map.of("air", AIR));
 
   /** A map of block names to their textures. */
   public static Map<String, String> blockTextures = new HashMap<>();
@@ -30,52 +65,151 @@ public class Palette {
   /** The text file to write and read the palette as text. */
   public static final String fileName = "palette.json";
 
+  /** Identifies the loaded palette, so results cached for another palette can be told apart. */
+  private static String version = "";
+
   /**
    * @param color The color to match.
-   * @return The nearest block to that color using the quantized palette.
+   * @return The nearest block to that color.
    */
   public static BlockState getNearestBlock(int color) {
-    int red = Math.min(255 - 255 % base, ((color >> 16 & 0xFF) + base / 2) / base * base);
-    int green = Math.min(255 - 255 % base, ((color >> 8 & 0xFF) + base / 2) / base * base);
-    int blue = Math.min(255 - 255 % base, ((color & 0xFF) + base / 2) / base * base);
-    if ((color >> 24 & 0xFF) != 255) return Blocks.AIR.defaultBlockState();
-    int newColor = (255 << 24) | (red << 16) | (green << 8) | blue;
-    String blockName = palette.getOrDefault(newColor, ObjModel.DEFAULT_MATERIAL);
-    ResourceLocation id = ResourceLocation.tryParse(blockName);
-    Block block = ForgeRegistries.BLOCKS.getValue(id);
-    if (block == null) return Blocks.IRON_BLOCK.defaultBlockState();
-    return block.defaultBlockState();
+    return getBlockState(getNearestBlockIndex(color));
   }
 
   /**
    * @param color The color to match.
-   * @return The nearest block name to that color using the quantized palette.
+   * @return The nearest block texture to that color.
    */
   public static String getNearestBlockTexture(int color) {
-    int red = Math.min(255 - 255 % base, ((color >> 16 & 0xFF) + base / 2) / base * base);
-    int green = Math.min(255 - 255 % base, ((color >> 8 & 0xFF) + base / 2) / base * base);
-    int blue = Math.min(255 - 255 % base, ((color & 0xFF) + base / 2) / base * base);
-    if ((color >> 24 & 0xFF) != 255) return "air";
-    int newColor = (255 << 24) | (red << 16) | (green << 8) | blue;
-    String blockName = palette.getOrDefault(newColor, ObjModel.DEFAULT_MATERIAL);
-    return blockTextures.getOrDefault(blockName, "iron_block");
+    return getBlockTexture(getNearestBlockIndex(color));
+  }
+
+  /**
+   * @param color The color to match.
+   * @return The palette index of the block with the closest color to that color, or {@link #AIR}
+   *     if the color is not opaque.
+   */
+  public static int getNearestBlockIndex(int color) {
+    if ((color >>> 24) != 255) return AIR;
+    int key = (color & 0xFFFFFF) * CACHE_SCRAMBLE & 0xFFFFFF;
+    int slot = key & (CACHE_SIZE - 1), tag = key >>> CACHE_BITS << 24;
+    int[] cache = nearestCache;
+    int entry = cache[slot];
+    if (entry != 0 && (entry & 0xFF000000) == tag) return (entry & 0xFFFFFF) - 1;
+
+    ColorTree palette = Palette.palette;
+    if (palette == null) return indexOf(ObjModel.DEFAULT_MATERIAL);
+    int index = palette.nearest(color, indexOf(ObjModel.DEFAULT_MATERIAL));
+    cache[slot] = tag | (index + 1);
+    return index;
+  }
+
+  /**
+   * @param index A palette index.
+   * @return The block state for the palette index.
+   */
+  public static BlockState getBlockState(int index) {
+    BlockState[] states = blockStates;
+    if (index < 0 || index >= states.length) states = resolveBlockStates();
+    if (index < 0 || index >= states.length) return Blocks.IRON_BLOCK.defaultBlockState();
+    return states[index];
+  }
+
+  /**
+   * @param index A palette index.
+   * @return The name of the texture for the palette index.
+   */
+  public static String getBlockTexture(int index) {
+    String[] textures = Palette.textures;
+    if (index < 0 || index >= textures.length) textures = resolveTextures();
+    if (index < 0 || index >= textures.length) return "iron_block";
+    return textures[index];
+  }
+
+  /**
+   * @param index A palette index.
+   * @return The color of the block for the palette index, or {@link ObjModel#DEFAULT_COLOR} if the
+   *     palette has none.
+   */
+  public static int getColor(int index) {
+    int[] colors = Palette.colors;
+    int color = index >= 0 && index < colors.length ? colors[index] : 0;
+    return color != 0 ? color : ObjModel.DEFAULT_COLOR;
+  }
+
+  /**
+   * @param index A palette index.
+   * @return The name of the block for the palette index.
+   */
+  public static synchronized String getBlockName(int index) {
+    return index >= 0 && index < blockNames.size()
+        ? blockNames.get(index)
+        : ObjModel.DEFAULT_MATERIAL;
+  }
+
+  /**
+   * @param blockName The name of a block.
+   * @return The palette index of the block, assigning a new one if the block has none yet.
+   */
+  public static synchronized int indexOf(String blockName) {
+    Integer index = blockIndices.get(blockName);
+    if (index != null) return index;
+    blockNames.add(blockName);
+    blockIndices.put(blockName, blockNames.size() - 1);
+    return blockNames.size() - 1;
+  }
+
+  /**
+   * @return A string that changes whenever the palette matches colors to different blocks.
+   */
+  public static String getVersion() {
+    return version;
+  }
+
+  /**
+   * Drops the resolved block states so they are looked up again. Must be called whenever the block
+   * registry is reloaded or remapped.
+   */
+  public static void invalidateBlockStates() {
+    blockStates = new BlockState[0];
+  }
+
+  /**
+   * @return Block states of every palette index, resolved from the block registry.
+   */
+  private static synchronized BlockState[] resolveBlockStates() {
+    BlockState[] states = new BlockState[blockNames.size()];
+    states[AIR] = Blocks.AIR.defaultBlockState();
+    for (int i = 1; i < states.length; ++i) {
+      ResourceLocation id = ResourceLocation.tryParse(blockNames.get(i));
+      Block block = id != null ? ForgeRegistries.BLOCKS.getValue(id) : null;
+      states[i] =
+          block != null ? block.defaultBlockState() : Blocks.IRON_BLOCK.defaultBlockState();
+    }
+    blockStates = states;
+    return states;
+  }
+
+  /**
+   * @return Texture names of every palette index.
+   */
+  private static synchronized String[] resolveTextures() {
+    String[] names = new String[blockNames.size()];
+    names[AIR] = "air";
+    for (int i = 1; i < names.length; ++i) {
+      names[i] = blockTextures.getOrDefault(blockNames.get(i), "iron_block");
+    }
+    textures = names;
+    return names;
   }
 
   public static void loadPaletteFromJSON() {
     try (InputStream inputStream =
         Palette.class.getResourceAsStream("/data/" + MOD_ID + "/" + fileName)) {
       if (inputStream != null) {
-        Map<String, Integer> blockColors = new HashMap<>();
-        InputStreamReader reader = new InputStreamReader(inputStream);
-        JsonElement json = JsonParser.parseReader(reader);
-        for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
-          String block = entry.getKey();
-          int color = entry.getValue().getAsJsonObject().get("color").getAsInt();
-          String texture = entry.getValue().getAsJsonObject().get("texture").getAsString();
-          blockColors.put(block, color);
-          blockTextures.put(block, texture);
-        }
-        palette = createQuantizedPalette(blockColors);
+        loadColors(inputStream);
+        resolveTextures();
+        resolveBlockStates();
       } else {
         System.err.println("Palette JSON file not found");
       }
@@ -85,38 +219,34 @@ public class Palette {
   }
 
   /**
-   * @param blockColors A Map of block names to their average colors.
-   * @return A Map of quantized colors mapped to their corresponding nearest colored blocks.
-   */
-  private static Map<Integer, String> createQuantizedPalette(Map<String, Integer> blockColors) {
-    Map<Integer, String> quantizedPalette = new HashMap<>();
-    for (int r = 0; r <= 256; r += base) {
-      for (int g = 0; g <= 256; g += base) {
-        for (int b = 0; b <= 256; b += base) {
-          Vector4i ARGB = new Vector4i(255, r, g, b);
-          String nearestBlock = nearestBlock(blockColors, ARGB);
-          quantizedPalette.put(VectorColors.ARGBToInt(ARGB), nearestBlock);
-        }
-      }
-    }
-    return quantizedPalette;
-  }
-
-  /**
-   * @param blockColors A Map of block names to their average colors.
-   * @param color The color to match.
-   * @return The name of the block with the closest color to the given color.
+   * Loads the block colors and textures of a palette JSON file. Unlike {@link
+   * #loadPaletteFromJSON()} this does not touch the block registry, so it also works outside of the
+   * game.
+   *
+   * @param inputStream The contents of the palette file.
+   * @throws IOException The palette could not be read.
    */
-  private static String nearestBlock(Map<String, Integer> blockColors, Vector4i color) {
-    String nearestBlock = ObjModel.DEFAULT_MATERIAL;
-    double nearestDistance = Double.MAX_VALUE, currentDistance;
-    for (Map.Entry<String, Integer> entry : blockColors.entrySet()) {
-      Vector4i color2 = intToARGB(entry.getValue());
-      currentDistance = VectorColors.colorSquaredDistance(color, color2);
-      if (currentDistance > nearestDistance) continue;
-      nearestDistance = currentDistance;
-      nearestBlock = entry.getKey();
+  public static void loadColors(InputStream inputStream) throws IOException {
+    List<Integer> colors = new ArrayList<>(), indices = new ArrayList<>();
+    byte[] bytes = inputStream.readAllBytes();
+    version = Integer.toHexString(Arrays.hashCode(bytes));
+    JsonElement json = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8));
+    for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+      String block = entry.getKey();
+      int color = entry.getValue().getAsJsonObject().get("color").getAsInt();
+      String texture = entry.getValue().getAsJsonObject().get("texture").getAsString();
+      blockTextures.put(block, texture);
+      colors.add(color);
+      indices.add(indexOf(block));
     }
-    return nearestBlock;
+    indexOf(ObjModel.DEFAULT_MATERIAL);
+    int[] indexColors = new int[blockNames.size()];
+    for (int i = 0; i < colors.size(); ++i) indexColors[indices.get(i)] = colors.get(i);
+    Palette.colors = indexColors;
+    palette =
+        new ColorTree(
+            colors.stream().mapToInt(Integer::intValue).toArray(),
+            indices.stream().mapToInt(Integer::intValue).toArray());
+    nearestCache = new int[CACHE_SIZE];
   }
 }
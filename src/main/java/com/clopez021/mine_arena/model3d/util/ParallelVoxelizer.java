@@ -0,0 +1,135 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Voxelizes a buffer of triangles with fork/join tasks. Each task voxelizes a contiguous range of
+ * triangles into its own VoxelGrid, and grids are merged in triangle order with later triangles
+ * winning, so the result is the same as voxelizing every triangle in order on one thread no matter
+ * how many workers are used.
+ */
+public final class ParallelVoxelizer {
+  private ParallelVoxelizer() {}
+
+  /** The fewest triangles a single task voxelizes before it stops splitting. */
+  private static final int MIN_TRIANGLES_PER_TASK = 256;
+
+  /** The number of floats describing one triangle. */
+  public static final int TRIANGLE_STRIDE = 3 * TriangleVoxelizer.VERTEX_STRIDE;
+
+  /** The number of worker threads, 0 to use every available core. */
+  private static volatile int threads = 0;
+
+  private static ForkJoinPool pool;
+
+  /** Computes the value stored for a cell covered by a triangle. */
+  @FunctionalInterface
+  public interface CellValue {
+    /**
+     * Must be safe to call from several threads at once.
+     *
+     * @param triangle The index of the triangle covering the cell.
+     * @param tx X-coordinate of the texture at the cell.
+     * @param ty Y-coordinate of the texture at the cell.
+     * @return The value to store for the cell.
+     */
+    int valueAt(int triangle, float tx, float ty);
+  }
+
+  /**
+   * @param count The number of worker threads to voxelize with, 0 to use every available core and
+   *     1 to voxelize on the calling thread.
+   */
+  public static synchronized void setThreads(int count) {
+    count = Math.max(0, count);
+    if (count == threads) return;
+    threads = count;
+    if (pool != null) pool.shutdown();
+    pool = null;
+  }
+
+  /**
+   * @return The number of worker threads voxelization runs on.
+   */
+  public static int getParallelism() {
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * @param vertices Triangles of {@link #TRIANGLE_STRIDE} floats each, laid out as expected by
+   *     {@link TriangleVoxelizer#voxelize(float[], int, VoxelSink)}.
+   * @param triangleCount The number of triangles in the buffer.
+   * @param value Computes the value of each covered cell.
+   * @return A grid of every cell covered by the triangles.
+   */
+  public static VoxelGrid voxelize(float[] vertices, int triangleCount, CellValue value) {
+    int parallelism = getParallelism();
+    if (parallelism <= 1 || triangleCount <= MIN_TRIANGLES_PER_TASK) {
+      return voxelizeRange(vertices, 0, triangleCount, value);
+    }
+    int grain = Math.max(MIN_TRIANGLES_PER_TASK, triangleCount / (parallelism * 4));
+    return getPool().invoke(new Task(vertices, 0, triangleCount, grain, value));
+  }
+
+  private static VoxelGrid voxelizeRange(float[] vertices, int from, int to, CellValue value) {
+    VoxelGrid grid = new VoxelGrid();
+    TriangleVoxelizer voxelizer = new TriangleVoxelizer();
+    for (int t = from; t < to; ++t) {
+      int triangle = t;
+      voxelizer.voxelize(
+          vertices,
+          t * TRIANGLE_STRIDE,
+          (x, y, z, tx, ty) -> grid.put(x, y, z, value.valueAt(triangle, tx, ty)));
+    }
+    return grid;
+  }
+
+  private static synchronized ForkJoinPool getPool() {
+    if (pool == null) {
+      pool =
+          new ForkJoinPool(
+              getParallelism(),
+              p -> {
+                ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("MineArena-Voxelizer-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+              },
+              null,
+              false);
+    }
+    return pool;
+  }
+
+  /** Voxelizes a range of triangles, splitting it in half until it is small enough. */
+  private static class Task extends RecursiveTask<VoxelGrid> {
+    private final float[] vertices;
+    private final int from, to, grain;
+    private final CellValue value;
+
+    private Task(float[] vertices, int from, int to, int grain, CellValue value) {
+      this.vertices = vertices;
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.value = value;
+    }
+
+    @Override
+    protected VoxelGrid compute() {
+      if (to - from <= grain) return voxelizeRange(vertices, from, to, value);
+      int mid = (from + to) >>> 1;
+      Task first = new Task(vertices, from, mid, grain, value);
+      Task second = new Task(vertices, mid, to, grain, value);
+      first.fork();
+      VoxelGrid secondGrid = second.compute();
+      VoxelGrid firstGrid = first.join();
+      // Later triangles overwrite earlier ones, exactly like a sequential pass
+      firstGrid.putAll(secondGrid);
+      return firstGrid;
+    }
+  }
+}
@@ -1,7 +1,5 @@
 package com.clopez021.mine_arena.model3d.util;
 
-import java.util.ArrayList;
-import java.util.List;
 import net.minecraft.core.BlockPos;
 import org.joml.Matrix4f;
 
@@ -10,8 +8,6 @@ public class Point {
   /** Position and texture coordinates of this Point. */
   public float x, y, z, tx, ty;
 
-  public static float precision = 2f;
-
   /**
    * @param x X-coordinate of point.
    * @param y Y-coordinate of point.
@@ -77,34 +73,6 @@ public class Point {
     return new BlockPos((int) (this.x), (int) (this.y), (int) (this.z));
   }
 
-  /**
-   * @param p Endpoint of the line.
-   * @return A list of Points between this Point and Point p.
-   */
-  protected List<Point> line(Point p) {
-    float dx = p.x - this.x, dy = p.y - this.y, dz = p.z - this.z;
-    float dtx = p.tx - this.tx, dty = p.ty - this.ty;
-    float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
-    int steps = (int) (distance * precision);
-
-    float stepX = dx / steps, stepY = dy / steps, stepZ = dz / steps;
-    float stepTx = dtx / steps, stepTy = dty / steps;
-
-    List<Point> points = new ArrayList<>(steps + 1);
-    float x = this.x, y = this.y, z = this.z, tx = this.tx, ty = this.ty;
-    for (int i = 0; i < steps; i++) {
-      points.add(new Point(x, y, z, tx, ty));
-      x += stepX;
-      y += stepY;
-      z += stepZ;
-      tx += stepTx;
-      ty += stepTy;
-    }
-
-    points.add(new Point(p.x, p.y, p.z, p.tx, p.ty));
-    return points;
-  }
-
   /**
    * @param obj Object being compared.
    * @return True if obj is a Point and its positional coordinates are equal, and false otherwise.
@@ -0,0 +1,114 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import com.clopez021.mine_arena.model3d.ObjModel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Remembers rotated copies of spell blocks. Yaw and pitch are snapped to buckets of {@link
+ * #ANGLE_STEP} degrees, so casting the same spell in similar directions reuses one rotation instead
+ * of rotating every block again. The least recently used rotations are dropped once {@link
+ * #CAPACITY} are cached.
+ */
+public final class RotationCache {
+  private RotationCache() {}
+
+  /** The size of each yaw and pitch bucket, in degrees. */
+  public static final int ANGLE_STEP = 5;
+
+  /** The most rotations kept at once. */
+  public static final int CAPACITY = 256;
+
+  private static final Map<Key, Map<BlockPos, BlockState>> cache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Map<BlockPos, BlockState>> eldest) {
+          return size() > CAPACITY;
+        }
+      };
+
+  /**
+   * @param blocks The blocks of a spell. Rotations are cached per map instance, so it must not be
+   *     modified afterwards.
+   * @param yawDegrees The yaw to rotate by.
+   * @param pitchDegrees The pitch to rotate by.
+   * @return The blocks rotated by the nearest bucketed yaw and pitch, as an unmodifiable map.
+   * @see ObjModel#rotateBlocks3D(Map, float, float)
+   */
+  public static Map<BlockPos, BlockState> rotate(
+      Map<BlockPos, BlockState> blocks, float yawDegrees, float pitchDegrees) {
+    return rotateBucketed(blocks, yawBucket(yawDegrees), pitchBucket(pitchDegrees));
+  }
+
+  /**
+   * @return The yaw bucket nearest to a yaw, from 0 up to 360 / {@link #ANGLE_STEP}.
+   */
+  public static int yawBucket(float yawDegrees) {
+    return Math.floorMod(Math.round(yawDegrees / ANGLE_STEP), 360 / ANGLE_STEP);
+  }
+
+  /**
+   * @return The pitch bucket nearest to a pitch.
+   */
+  public static int pitchBucket(float pitchDegrees) {
+    return Math.round(pitchDegrees / ANGLE_STEP);
+  }
+
+  /**
+   * @param blocks The blocks of a spell, as for {@link #rotate(Map, float, float)}.
+   * @param yaw A bucket from {@link #yawBucket(float)}.
+   * @param pitch A bucket from {@link #pitchBucket(float)}.
+   * @return The blocks rotated by the buckets' angles, as an unmodifiable map.
+   */
+  public static Map<BlockPos, BlockState> rotateBucketed(
+      Map<BlockPos, BlockState> blocks, int yaw, int pitch) {
+    Key key = new Key(blocks, yaw, pitch);
+    synchronized (cache) {
+      Map<BlockPos, BlockState> rotated = cache.get(key);
+      if (rotated != null) return rotated;
+    }
+
+    Map<BlockPos, BlockState> rotated =
+        Collections.unmodifiableMap(
+            ObjModel.rotateBlocks3D(blocks, yaw * ANGLE_STEP, pitch * ANGLE_STEP));
+    synchronized (cache) {
+      cache.put(key, rotated);
+    }
+    return rotated;
+  }
+
+  /** Drops every cached rotation. */
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /** Identifies a rotation of a block map by the map's identity and the angle buckets. */
+  private static final class Key {
+    private final Map<BlockPos, BlockState> blocks;
+    private final int yaw, pitch;
+
+    private Key(Map<BlockPos, BlockState> blocks, int yaw, int pitch) {
+      this.blocks = blocks;
+      this.yaw = yaw;
+      this.pitch = pitch;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key other
+          && other.blocks == blocks
+          && other.yaw == yaw
+          && other.pitch == pitch;
+    }
+
+    @Override
+    public int hashCode() {
+      return (System.identityHashCode(blocks) * 31 + yaw) * 31 + pitch;
+    }
+  }
+}
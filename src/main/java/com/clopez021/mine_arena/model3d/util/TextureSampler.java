@@ -0,0 +1,175 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A texture unpacked once into a flat array of ARGB colors, so sampling it is plain array indexing
+ * instead of going through the ColorModel and Raster of a BufferedImage for every texel. Texture
+ * coordinates wrap around in both directions. Samplers are immutable and safe to share between
+ * threads.
+ */
+public final class TextureSampler {
+  /** How texels are combined when sampling between them. */
+  public enum Filter {
+    /** The color of the texel containing the sample. */
+    NEAREST,
+    /** The four texels around the sample blended by distance. */
+    BILINEAR
+  }
+
+  /**
+   * Samplers of texture files that were already loaded, keyed by path, size, modification time and
+   * subsampling step, so every model using the same texture shares one array. Softly referenced so
+   * unused textures can still be collected.
+   */
+  private static final Map<String, SoftReference<TextureSampler>> cache = new ConcurrentHashMap<>();
+
+  private final int width, height;
+
+  /** Colors of the texture in rows from top to bottom. */
+  private final int[] argb;
+
+  private TextureSampler(int width, int height, int[] argb) {
+    this.width = width;
+    this.height = height;
+    this.argb = argb;
+  }
+
+  /**
+   * @param image The image to unpack.
+   * @return A sampler holding a copy of the colors of the image.
+   */
+  public static TextureSampler of(BufferedImage image) {
+    int width = image.getWidth(), height = image.getHeight();
+    if (image.getType() == BufferedImage.TYPE_INT_ARGB
+        && image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+        && buffer.getNumBanks() == 1
+        && buffer.getData().length == width * height) {
+      return new TextureSampler(width, height, buffer.getData().clone());
+    }
+    return new TextureSampler(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+  }
+
+  /**
+   * Loads a texture file at full resolution.
+   *
+   * @see #load(File, long)
+   */
+  public static TextureSampler load(File file) {
+    return load(file, 0);
+  }
+
+  /**
+   * Loads a texture file, reusing the sampler of an earlier load if the file has not changed. Large
+   * textures are decoded with source subsampling, keeping every n-th texel of every n-th row, so
+   * the full resolution image is never held in memory.
+   *
+   * @param file The texture to load.
+   * @param targetTexels The fewest texels the sampler needs, 0 to decode at full resolution.
+   * @return The sampler for the texture, or null if it could not be read.
+   */
+  public static TextureSampler load(File file, long targetTexels) {
+    try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+      if (input == null) return null;
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) return null;
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int step = subsamplingStep(reader.getWidth(0), reader.getHeight(0), targetTexels);
+        String key =
+            file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified() + '|' + step;
+        SoftReference<TextureSampler> reference = cache.get(key);
+        TextureSampler sampler = reference != null ? reference.get() : null;
+        if (sampler != null) return sampler;
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        sampler = of(reader.read(0, param));
+        cache.values().removeIf(ref -> ref.get() == null);
+        cache.put(key, new SoftReference<>(sampler));
+        return sampler;
+      } finally {
+        reader.dispose();
+      }
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return The largest step that still keeps at least targetTexels texels of the image.
+   */
+  private static int subsamplingStep(int width, int height, long targetTexels) {
+    if (targetTexels <= 0) return 1;
+    double step = Math.sqrt((double) width * height / targetTexels);
+    return Math.max(1, Math.min((int) step, Math.min(width, height)));
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @param u A number 0-1 representing the horizontal position in the texture.
+   * @param v A number 0-1 representing the vertical position in the texture, from the bottom.
+   * @param filter How to combine the texels around the position.
+   * @return The color at the position as an ARGB integer.
+   */
+  public int sample(float u, float v, Filter filter) {
+    return filter == Filter.BILINEAR ? sampleBilinear(u, v) : sampleNearest(u, v);
+  }
+
+  /**
+   * @see #sample(float, float, Filter)
+   */
+  public int sampleNearest(float u, float v) {
+    int x = wrap((int) Math.floor(u * width), width);
+    int y = wrap((int) Math.floor((1 - v) * height), height);
+    return argb[y * width + x];
+  }
+
+  /**
+   * @see #sample(float, float, Filter)
+   */
+  public int sampleBilinear(float u, float v) {
+    float fx = u * width - 0.5f, fy = (1 - v) * height - 0.5f;
+    int x0 = (int) Math.floor(fx), y0 = (int) Math.floor(fy);
+    float wx = fx - x0, wy = fy - y0;
+    int x1 = wrap(x0 + 1, width), y1 = wrap(y0 + 1, height);
+    x0 = wrap(x0, width);
+    y0 = wrap(y0, height);
+
+    int c00 = argb[y0 * width + x0], c10 = argb[y0 * width + x1];
+    int c01 = argb[y1 * width + x0], c11 = argb[y1 * width + x1];
+    int color = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      float top = lerp(c00 >>> shift & 0xFF, c10 >>> shift & 0xFF, wx);
+      float bottom = lerp(c01 >>> shift & 0xFF, c11 >>> shift & 0xFF, wx);
+      color |= Math.round(lerp(top, bottom, wy)) << shift;
+    }
+    return color;
+  }
+
+  private static float lerp(float a, float b, float t) {
+    return a + (b - a) * t;
+  }
+
+  private static int wrap(int i, int size) {
+    return Math.floorMod(i, size);
+  }
+}
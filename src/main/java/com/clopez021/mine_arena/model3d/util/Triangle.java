@@ -36,10 +36,29 @@ public class Triangle {
   }
 
   /**
-   * @return A set of Points between the three vertices of this Triangle using integer coordinates.
+   * Reports every cell this Triangle touches to the sink.
+   *
+   * @param voxelizer The voxelizer to use.
+   * @param sink Receives the integer cells and their texture coordinates.
+   */
+  public void voxelize(TriangleVoxelizer voxelizer, VoxelSink sink) {
+    float[] vertices = new float[3 * TriangleVoxelizer.VERTEX_STRIDE];
+    int i = 0;
+    for (Point p : getVertices()) {
+      vertices[i++] = p.x;
+      vertices[i++] = p.y;
+      vertices[i++] = p.z;
+      vertices[i++] = p.tx;
+      vertices[i++] = p.ty;
+    }
+    voxelizer.voxelize(vertices, 0, sink);
+  }
+
+  /**
+   * @return A set of Points inside this Triangle using integer coordinates.
    */
   public Set<Point> getBlockPoints(Set<Point> points) {
-    for (Point v4 : v1.line(v2)) for (Point p : v4.line(v3)) points.add(p.blockPoint());
+    voxelize(new TriangleVoxelizer(), (x, y, z, tx, ty) -> points.add(new Point(x, y, z, tx, ty)));
     return points;
   }
 }
@@ -0,0 +1,258 @@
+package com.clopez021.mine_arena.model3d.util;
+
+/**
+ * Conservative triangle voxelizer. For every column of a triangle's dominant projection only the
+ * cells its plane can pass through are tested against the triangle with a separating axis test, so
+ * every unit cell the triangle touches is reported without allocating anything per cell. Cells are
+ * half-open, so a triangle only touching a cell's max face does not count. Texture coordinates are
+ * interpolated once per cell at the cell center.
+ *
+ * <p>An instance keeps per-triangle state and may be reused for many triangles, but it is not
+ * thread-safe.
+ */
+public final class TriangleVoxelizer {
+  /** The number of floats describing one vertex: x, y, z, tx and ty. */
+  public static final int VERTEX_STRIDE = 5;
+
+  /** Half the size of a cell. */
+  private static final double HALF = 0.5;
+
+  /** The largest step used when sampling a degenerate triangle. */
+  private static final double DEGENERATE_STEP = 0.25;
+
+  /** Vertex positions of the current triangle. */
+  private double ax, ay, az, bx, by, bz, cx, cy, cz;
+
+  /** Texture coordinates of the current triangle. */
+  private float au, av, bu, bv, cu, cv;
+
+  /** Edges and normal of the current triangle. */
+  private double e0x, e0y, e0z, e1x, e1y, e1z, e2x, e2y, e2z, nx, ny, nz;
+
+  /** Terms of the barycentric projection of the current triangle. */
+  private double d00, d01, d11, invDenom;
+
+  /**
+   * Voxelizes a single triangle.
+   *
+   * @param vertices An array holding three vertices of {@link #VERTEX_STRIDE} floats each.
+   * @param offset The index of the first vertex in the array.
+   * @param sink Receives every cell the triangle touches. Cells shared between triangles are
+   *     reported once per triangle.
+   */
+  public void voxelize(float[] vertices, int offset, VoxelSink sink) {
+    int o = offset;
+    ax = vertices[o];
+    ay = vertices[o + 1];
+    az = vertices[o + 2];
+    au = vertices[o + 3];
+    av = vertices[o + 4];
+    o += VERTEX_STRIDE;
+    bx = vertices[o];
+    by = vertices[o + 1];
+    bz = vertices[o + 2];
+    bu = vertices[o + 3];
+    bv = vertices[o + 4];
+    o += VERTEX_STRIDE;
+    cx = vertices[o];
+    cy = vertices[o + 1];
+    cz = vertices[o + 2];
+    cu = vertices[o + 3];
+    cv = vertices[o + 4];
+
+    e0x = bx - ax;
+    e0y = by - ay;
+    e0z = bz - az;
+    e1x = cx - bx;
+    e1y = cy - by;
+    e1z = cz - bz;
+    e2x = ax - cx;
+    e2y = ay - cy;
+    e2z = az - cz;
+
+    // Normal = (b - a) x (c - a)
+    nx = e0z * e2y - e0y * e2z;
+    ny = e0x * e2z - e0z * e2x;
+    nz = e0y * e2x - e0x * e2y;
+
+    if (nx * nx + ny * ny + nz * nz < 1e-12) {
+      voxelizeDegenerate(sink);
+      return;
+    }
+
+    // Barycentric terms using v0 = b - a and v1 = c - a
+    d00 = e0x * e0x + e0y * e0y + e0z * e0z;
+    d01 = -(e0x * e2x + e0y * e2y + e0z * e2z);
+    d11 = e2x * e2x + e2y * e2y + e2z * e2z;
+    invDenom = 1.0 / (d00 * d11 - d01 * d01);
+
+    int[] min = {
+      (int) Math.floor(Math.min(ax, Math.min(bx, cx))),
+      (int) Math.floor(Math.min(ay, Math.min(by, cy))),
+      (int) Math.floor(Math.min(az, Math.min(bz, cz)))
+    };
+    int[] max = {
+      (int) Math.floor(Math.max(ax, Math.max(bx, cx))),
+      (int) Math.floor(Math.max(ay, Math.max(by, cy))),
+      (int) Math.floor(Math.max(az, Math.max(bz, cz)))
+    };
+    double[] n = {nx, ny, nz};
+
+    // Walk the columns of the projection onto the plane the triangle faces the most
+    double anx = Math.abs(nx), any = Math.abs(ny), anz = Math.abs(nz);
+    int depth = anx >= any && anx >= anz ? 0 : any >= anz ? 1 : 2;
+    int u = (depth + 1) % 3, w = (depth + 2) % 3;
+    double d = nx * ax + ny * ay + nz * az;
+    double nd = n[depth], nu = n[u], nw = n[w];
+
+    int[] cell = new int[3];
+    for (int i = min[u]; i <= max[u]; ++i) {
+      for (int j = min[w]; j <= max[w]; ++j) {
+        // Depth of the plane at the four corners of the column
+        double k00 = (d - nu * i - nw * j) / nd;
+        double k10 = (d - nu * (i + 1) - nw * j) / nd;
+        double k01 = (d - nu * i - nw * (j + 1)) / nd;
+        double k11 = (d - nu * (i + 1) - nw * (j + 1)) / nd;
+        double lo = Math.min(Math.min(k00, k10), Math.min(k01, k11));
+        double hi = Math.max(Math.max(k00, k10), Math.max(k01, k11));
+        int kMin = Math.max(min[depth], (int) Math.floor(lo));
+        int kMax = Math.min(max[depth], (int) Math.floor(hi));
+
+        cell[u] = i;
+        cell[w] = j;
+        for (int k = kMin; k <= kMax; ++k) {
+          cell[depth] = k;
+          double px = cell[0] + HALF, py = cell[1] + HALF, pz = cell[2] + HALF;
+          if (overlapsCell(px, py, pz)) emit(cell[0], cell[1], cell[2], px, py, pz, sink);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests the current triangle against the unit cell centered at the given point using the
+   * separating axis theorem (Akenine-Moller). Touching counts as overlapping, except for the
+   * cell's max face along each axis: the cell is half-open like {@code floor}, so a face lying on
+   * an integer plane fills the single layer of cells above it rather than the layers on both sides.
+   */
+  private boolean overlapsCell(double px, double py, double pz) {
+    double v0x = ax - px, v0y = ay - py, v0z = az - pz;
+    double v1x = bx - px, v1y = by - py, v1z = bz - pz;
+    double v2x = cx - px, v2y = cy - py, v2z = cz - pz;
+
+    // Axes of the cell, which holds its min faces but not its max faces
+    if (Math.min(v0x, Math.min(v1x, v2x)) >= HALF || Math.max(v0x, Math.max(v1x, v2x)) < -HALF)
+      return false;
+    if (Math.min(v0y, Math.min(v1y, v2y)) >= HALF || Math.max(v0y, Math.max(v1y, v2y)) < -HALF)
+      return false;
+    if (Math.min(v0z, Math.min(v1z, v2z)) >= HALF || Math.max(v0z, Math.max(v1z, v2z)) < -HALF)
+      return false;
+
+    // Plane of the triangle
+    double r = HALF * (Math.abs(nx) + Math.abs(ny) + Math.abs(nz));
+    double s = nx * v0x + ny * v0y + nz * v0z;
+    if (Math.abs(s) > r) return false;
+
+    // Cross products of the cell axes and the triangle edges
+    return edgeAxes(e0x, e0y, e0z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z)
+        && edgeAxes(e1x, e1y, e1z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z)
+        && edgeAxes(e2x, e2y, e2z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z);
+  }
+
+  /**
+   * @return False if one of the three axes formed by crossing the edge with the cell axes
+   *     separates the triangle from the cell, true otherwise.
+   */
+  private static boolean edgeAxes(
+      double fx,
+      double fy,
+      double fz,
+      double v0x,
+      double v0y,
+      double v0z,
+      double v1x,
+      double v1y,
+      double v1z,
+      double v2x,
+      double v2y,
+      double v2z) {
+    double afx = Math.abs(fx), afy = Math.abs(fy), afz = Math.abs(fz);
+
+    // X x f = (0, -fz, fy)
+    double p0 = -fz * v0y + fy * v0z, p1 = -fz * v1y + fy * v1z, p2 = -fz * v2y + fy * v2z;
+    double r = HALF * (afz + afy);
+    if (Math.min(p0, Math.min(p1, p2)) > r || Math.max(p0, Math.max(p1, p2)) < -r) return false;
+
+    // Y x f = (fz, 0, -fx)
+    p0 = fz * v0x - fx * v0z;
+    p1 = fz * v1x - fx * v1z;
+    p2 = fz * v2x - fx * v2z;
+    r = HALF * (afz + afx);
+    if (Math.min(p0, Math.min(p1, p2)) > r || Math.max(p0, Math.max(p1, p2)) < -r) return false;
+
+    // Z x f = (-fy, fx, 0)
+    p0 = -fy * v0x + fx * v0y;
+    p1 = -fy * v1x + fx * v1y;
+    p2 = -fy * v2x + fx * v2y;
+    r = HALF * (afy + afx);
+    return !(Math.min(p0, Math.min(p1, p2)) > r || Math.max(p0, Math.max(p1, p2)) < -r);
+  }
+
+  /** Reports a cell with texture coordinates interpolated at the given point. */
+  private void emit(int x, int y, int z, double px, double py, double pz, VoxelSink sink) {
+    double qx = px - ax, qy = py - ay, qz = pz - az;
+    double d20 = qx * e0x + qy * e0y + qz * e0z;
+    double d21 = -(qx * e2x + qy * e2y + qz * e2z);
+    double wb = (d11 * d20 - d01 * d21) * invDenom;
+    double wc = (d00 * d21 - d01 * d20) * invDenom;
+    double wa = 1 - wb - wc;
+
+    // Cells near the edges may project outside of the triangle, clamp back onto it
+    if (wa < 0 || wb < 0 || wc < 0) {
+      wa = Math.max(0, wa);
+      wb = Math.max(0, wb);
+      wc = Math.max(0, wc);
+      double sum = wa + wb + wc;
+      wa /= sum;
+      wb /= sum;
+      wc /= sum;
+    }
+
+    float tx = (float) (wa * au + wb * bu + wc * cu);
+    float ty = (float) (wa * av + wb * bv + wc * cv);
+    sink.accept(x, y, z, tx, ty);
+  }
+
+  /** Voxelizes a triangle with no area by sampling each of its edges. */
+  private void voxelizeDegenerate(VoxelSink sink) {
+    sampleSegment(ax, ay, az, au, av, bx, by, bz, bu, bv, sink);
+    sampleSegment(bx, by, bz, bu, bv, cx, cy, cz, cu, cv, sink);
+    sampleSegment(cx, cy, cz, cu, cv, ax, ay, az, au, av, sink);
+  }
+
+  private static void sampleSegment(
+      double x0,
+      double y0,
+      double z0,
+      float u0,
+      float v0,
+      double x1,
+      double y1,
+      double z1,
+      float u1,
+      float v1,
+      VoxelSink sink) {
+    double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+    double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+    int steps = Math.max(1, (int) Math.ceil(length / DEGENERATE_STEP));
+    for (int i = 0; i <= steps; ++i) {
+      float t = (float) i / steps;
+      sink.accept(
+          (int) Math.floor(x0 + dx * t),
+          (int) Math.floor(y0 + dy * t),
+          (int) Math.floor(z0 + dz * t),
+          u0 + (u1 - u0) * t,
+          v0 + (v1 - v0) * t);
+    }
+  }
+}
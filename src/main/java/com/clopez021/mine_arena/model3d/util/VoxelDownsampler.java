@@ -0,0 +1,56 @@
+package com.clopez021.mine_arena.model3d.util;
+
+/**
+ * Lowers the resolution of voxel grids one octree level at a time. Every 2x2x2 block of cells
+ * becomes a single cell, filled if any of its children is, with the average color of its children
+ * matched back to the nearest block of the {@link Palette}. {@link Palette#AIR} children count as
+ * empty.
+ */
+public final class VoxelDownsampler {
+  private VoxelDownsampler() {}
+
+  /**
+   * @param grid A grid of palette indices.
+   * @return A grid of palette indices with half the resolution along every axis.
+   */
+  public static VoxelGrid halve(VoxelGrid grid) {
+    // Sums of the colors of the children of every parent cell, indexed by slot
+    VoxelGrid slots = new VoxelGrid(grid.size() / 4 + 1);
+    IntList counts = new IntList(grid.size() / 4 + 1);
+    IntList reds = new IntList(grid.size() / 4 + 1);
+    IntList greens = new IntList(grid.size() / 4 + 1);
+    IntList blues = new IntList(grid.size() / 4 + 1);
+    grid.forEach(
+        (x, y, z, index) -> {
+          // Air is no color, averaging it in would turn transparent cells into solid gray
+          if (index == Palette.AIR) return;
+          // Arithmetic shifts round down, so negative coordinates group like positive ones
+          int slot = slots.get(x >> 1, y >> 1, z >> 1, -1);
+          if (slot < 0) {
+            slot = counts.size();
+            slots.put(x >> 1, y >> 1, z >> 1, slot);
+            counts.add(0);
+            reds.add(0);
+            greens.add(0);
+            blues.add(0);
+          }
+          int color = Palette.getColor(index);
+          counts.set(slot, counts.get(slot) + 1);
+          reds.set(slot, reds.get(slot) + (color >> 16 & 0xFF));
+          greens.set(slot, greens.get(slot) + (color >> 8 & 0xFF));
+          blues.set(slot, blues.get(slot) + (color & 0xFF));
+        });
+
+    VoxelGrid parents = new VoxelGrid(slots.size());
+    slots.forEach(
+        (x, y, z, slot) -> {
+          int count = counts.get(slot);
+          int red = (reds.get(slot) + count / 2) / count;
+          int green = (greens.get(slot) + count / 2) / count;
+          int blue = (blues.get(slot) + count / 2) / count;
+          int color = 0xFF000000 | red << 16 | green << 8 | blue;
+          parents.put(x, y, z, Palette.getNearestBlockIndex(color));
+        });
+    return parents;
+  }
+}
@@ -0,0 +1,101 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes voxel models in a compact binary format: a gzipped stream holding a table of
+ * block names followed by every voxel as its position and an index into that table. Block names
+ * are stored instead of palette or registry indices so files stay valid across palette and
+ * registry changes.
+ */
+public final class VoxelFile {
+  private VoxelFile() {}
+
+  /** "MAVX", the first bytes of every voxel file. */
+  private static final int MAGIC = 0x4D415658;
+
+  /** Bump whenever the layout below changes. */
+  private static final int VERSION = 1;
+
+  /**
+   * @param out The stream to write to. It is finished but not closed.
+   * @param grid The voxels to write.
+   * @param names The block name of each value in the grid.
+   * @throws IOException The stream could not be written.
+   */
+  public static void write(OutputStream out, VoxelGrid grid, IntFunction<String> names)
+      throws IOException {
+    Map<Integer, Integer> indices = new HashMap<>();
+    List<String> table = new ArrayList<>();
+    grid.forEach(
+        (x, y, z, value) ->
+            indices.computeIfAbsent(
+                value,
+                v -> {
+                  table.add(names.apply(v));
+                  return table.size() - 1;
+                }));
+
+    GZIPOutputStream gzip = new GZIPOutputStream(out);
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(table.size());
+    for (String name : table) data.writeUTF(name);
+    data.writeInt(grid.size());
+    IOException[] error = new IOException[1];
+    grid.forEach(
+        (x, y, z, value) -> {
+          if (error[0] != null) return;
+          try {
+            data.writeInt(x);
+            data.writeInt(y);
+            data.writeInt(z);
+            data.writeInt(indices.get(value));
+          } catch (IOException e) {
+            error[0] = e;
+          }
+        });
+    if (error[0] != null) throw error[0];
+    data.flush();
+    gzip.finish();
+  }
+
+  /**
+   * @param in The stream to read from. It is not closed.
+   * @param indexOf Maps each block name to the value stored in the grid, or -1 if the block is
+   *     unknown.
+   * @return The voxels of the file, or null if it references an unknown block.
+   * @throws IOException The stream could not be read or is not a voxel file.
+   */
+  public static VoxelGrid read(InputStream in, ToIntFunction<String> indexOf) throws IOException {
+    DataInputStream data =
+        new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+    if (data.readInt() != MAGIC) throw new IOException("Not a voxel file");
+    int version = data.readInt();
+    if (version != VERSION) throw new IOException("Unsupported voxel file version " + version);
+
+    int[] values = new int[data.readInt()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = indexOf.applyAsInt(data.readUTF());
+      if (values[i] < 0) return null;
+    }
+
+    int count = data.readInt();
+    VoxelGrid grid = new VoxelGrid(count);
+    for (int i = 0; i < count; ++i) {
+      int x = data.readInt(), y = data.readInt(), z = data.readInt(), index = data.readInt();
+      if (index < 0 || index >= values.length) throw new IOException("Bad block index " + index);
+      grid.put(x, y, z, values[index]);
+    }
+    return grid;
+  }
+}
@@ -0,0 +1,191 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import java.util.Arrays;
+
+/**
+ * A sparse grid of voxels. Coordinates are packed into a single long and mapped to an int value
+ * (usually a {@link Palette} index) in an open-addressing hash table, so no object is allocated per
+ * voxel.
+ */
+public class VoxelGrid {
+  /** Number of bits used by each packed coordinate. */
+  private static final int BITS = 21;
+
+  private static final long MASK = (1L << BITS) - 1;
+
+  /** Marks an unused slot. Packed coordinates never set the sign bit, so this is never a key. */
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /** Visits the voxels of a VoxelGrid. */
+  @FunctionalInterface
+  public interface Visitor {
+    /**
+     * @param x X-coordinate of the voxel.
+     * @param y Y-coordinate of the voxel.
+     * @param z Z-coordinate of the voxel.
+     * @param value The value of the voxel.
+     */
+    void visit(int x, int y, int z, int value);
+  }
+
+  private long[] keys;
+  private int[] values;
+  private int size;
+
+  public VoxelGrid() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize The number of voxels the grid should hold without resizing.
+   */
+  public VoxelGrid(int expectedSize) {
+    allocate(tableSizeFor(expectedSize));
+  }
+
+  /**
+   * @return The coordinates packed into a long. Each coordinate must fit in 21 signed bits.
+   */
+  public static long pack(int x, int y, int z) {
+    return ((x & MASK) << (2 * BITS)) | ((y & MASK) << BITS) | (z & MASK);
+  }
+
+  public static int unpackX(long key) {
+    return (int) (key << (64 - 3 * BITS) >> (64 - BITS));
+  }
+
+  public static int unpackY(long key) {
+    return (int) (key << (64 - 2 * BITS) >> (64 - BITS));
+  }
+
+  public static int unpackZ(long key) {
+    return (int) (key << (64 - BITS) >> (64 - BITS));
+  }
+
+  /**
+   * @return The number of voxels in this grid.
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(int x, int y, int z) {
+    return slot(pack(x, y, z)) >= 0;
+  }
+
+  /**
+   * @return The value of the voxel, or defaultValue if the voxel is not in this grid.
+   */
+  public int get(int x, int y, int z, int defaultValue) {
+    int slot = slot(pack(x, y, z));
+    return slot >= 0 ? values[slot] : defaultValue;
+  }
+
+  /** Sets the value of a voxel, replacing any previous value. */
+  public void put(int x, int y, int z, int value) {
+    put(pack(x, y, z), value);
+  }
+
+  /** Sets the value of a voxel by its packed coordinates, replacing any previous value. */
+  public void put(long key, int value) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (keys[i] != EMPTY) {
+      if (keys[i] == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size * 2 > keys.length) rehash(keys.length * 2);
+  }
+
+  /** Sets the value of a voxel only if the voxel is not already in this grid. */
+  public void putIfAbsent(int x, int y, int z, int value) {
+    long key = pack(x, y, z);
+    if (slot(key) < 0) put(key, value);
+  }
+
+  /** Copies every voxel of the other grid into this one, replacing existing values. */
+  public void putAll(VoxelGrid other) {
+    long[] otherKeys = other.keys;
+    int[] otherValues = other.values;
+    for (int i = 0; i < otherKeys.length; ++i) {
+      if (otherKeys[i] != EMPTY) put(otherKeys[i], otherValues[i]);
+    }
+  }
+
+  /** Removes every voxel from this grid. */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  /** Calls the visitor once for every voxel in this grid, in no particular order. */
+  public void forEach(Visitor visitor) {
+    for (int i = 0; i < keys.length; ++i) {
+      long key = keys[i];
+      if (key != EMPTY) visitor.visit(unpackX(key), unpackY(key), unpackZ(key), values[i]);
+    }
+  }
+
+  /**
+   * @return The slot holding the key, or -1 if the key is not in this grid.
+   */
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (keys[i] != EMPTY) {
+      if (keys[i] == key) return i;
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; ++j) {
+      long key = oldKeys[j];
+      if (key == EMPTY) continue;
+      int i = mix(key) & mask;
+      while (keys[i] != EMPTY) i = (i + 1) & mask;
+      keys[i] = key;
+      values[i] = oldValues[j];
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /**
+   * @return The smallest power of two table that holds the given number of voxels at half load.
+   */
+  private static int tableSizeFor(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+    return Math.min(capacity, 1 << 30);
+  }
+
+  /** Spreads the bits of a packed key (the MurmurHash3 finalizer). */
+  private static int mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,14 @@
+package com.clopez021.mine_arena.model3d.util;
+
+/** Receives the integer cells produced by a voxelizer along with their texture coordinates. */
+@FunctionalInterface
+public interface VoxelSink {
+  /**
+   * @param x X-coordinate of the cell.
+   * @param y Y-coordinate of the cell.
+   * @param z Z-coordinate of the cell.
+   * @param tx X-coordinate of the texture at the cell.
+   * @param ty Y-coordinate of the texture at the cell.
+   */
+  void accept(int x, int y, int z, float tx, float ty);
+}
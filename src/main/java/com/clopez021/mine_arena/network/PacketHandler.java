@@ -7,7 +7,7 @@ import net.minecraftforge.network.SimpleChannel;
 
 /** Register and build the different types of packets. */
 public class PacketHandler {
-  private static final int PROTOCOL_VERSION = 1;
+  private static final int PROTOCOL_VERSION = 5;
   public static final SimpleChannel INSTANCE =
       ChannelBuilder.named(ResourceLocation.fromNamespaceAndPath("model_tools", "main"))
           .networkProtocolVersion(PROTOCOL_VERSION)
@@ -58,5 +58,23 @@ public class PacketHandler {
         .decoder(SpellInfoListPacket::decode)
         .consumerMainThread(SpellInfoListPacket::handle)
         .add();
+    INSTANCE
+        .messageBuilder(RequestSpellModelPacket.class, ++index, NetworkDirection.PLAY_TO_SERVER)
+        .encoder(RequestSpellModelPacket::encode)
+        .decoder(RequestSpellModelPacket::decode)
+        .consumerMainThread(RequestSpellModelPacket::handle)
+        .add();
+    INSTANCE
+        .messageBuilder(SpellModelChunkPacket.class, ++index, NetworkDirection.PLAY_TO_CLIENT)
+        .encoder(SpellModelChunkPacket::encode)
+        .decoder(SpellModelChunkPacket::decode)
+        .consumerNetworkThread(SpellModelChunkPacket::handle)
+        .add();
+    INSTANCE
+        .messageBuilder(SpellModelUnavailablePacket.class, ++index, NetworkDirection.PLAY_TO_CLIENT)
+        .encoder(SpellModelUnavailablePacket::encode)
+        .decoder(SpellModelUnavailablePacket::decode)
+        .consumerMainThread(SpellModelUnavailablePacket::handle)
+        .add();
   }
 }
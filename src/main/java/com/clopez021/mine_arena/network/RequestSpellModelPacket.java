@@ -0,0 +1,55 @@
+package com.clopez021.mine_arena.network;
+
+import com.clopez021.mine_arena.core.entity.SpellEntity;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.network.CustomPayloadEvent;
+import net.minecraftforge.network.PacketDistributor;
+
+/** Asks the server for the blocks of a spell model the client has not cached. */
+public class RequestSpellModelPacket {
+  private static final int MAX_HASH_LENGTH = 64;
+
+  private final String hash;
+  private final int entityId;
+
+  public RequestSpellModelPacket(String hash, int entityId) {
+    this.hash = hash;
+    this.entityId = entityId;
+  }
+
+  public void encode(FriendlyByteBuf buf) {
+    buf.writeUtf(hash, MAX_HASH_LENGTH);
+    buf.writeVarInt(entityId);
+  }
+
+  public static RequestSpellModelPacket decode(FriendlyByteBuf buf) {
+    String hash = buf.readUtf(MAX_HASH_LENGTH);
+    int entityId = buf.readVarInt();
+    return new RequestSpellModelPacket(hash, entityId);
+  }
+
+  public void handle(CustomPayloadEvent.Context ctx) {
+    ServerPlayer player = ctx.getSender();
+    if (player == null) return;
+    ctx.enqueueWork(
+        () -> {
+          // Models are served by hash; the spell named by the request only stands in for a model
+          // that was dropped from the registry
+          byte[] packed = SpellModelRegistry.get(hash);
+          if (packed == null
+              && player.serverLevel().getEntity(entityId) instanceof SpellEntity spell
+              && spell.getConfig().getModelHash().equals(hash)) {
+            packed = spell.getConfig().getPackedBlocks();
+            SpellModelRegistry.register(hash, packed);
+          }
+          if (packed != null) {
+            SpellModelSender.enqueue(player, hash, packed);
+          } else {
+            PacketHandler.INSTANCE.send(
+                new SpellModelUnavailablePacket(hash), PacketDistributor.PLAYER.with(player));
+          }
+        });
+    ctx.setPacketHandled(true);
+  }
+}
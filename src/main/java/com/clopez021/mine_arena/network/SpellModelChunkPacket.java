@@ -0,0 +1,48 @@
+package com.clopez021.mine_arena.network;
+
+import com.clopez021.mine_arena.client.SpellModelAssembler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.network.CustomPayloadEvent;
+import net.minecraftforge.fml.DistExecutor;
+
+/**
+ * One chunk of a spell model requested with {@link RequestSpellModelPacket}, streamed by {@link
+ * SpellModelSender}. Handled on the network thread.
+ */
+public class SpellModelChunkPacket {
+  private static final int MAX_HASH_LENGTH = 64;
+
+  private final String hash;
+  private final int sequence;
+  private final int length;
+  private final byte[] chunk;
+
+  public SpellModelChunkPacket(String hash, int sequence, int length, byte[] chunk) {
+    this.hash = hash;
+    this.sequence = sequence;
+    this.length = length;
+    this.chunk = chunk;
+  }
+
+  public void encode(FriendlyByteBuf buf) {
+    buf.writeUtf(hash, MAX_HASH_LENGTH);
+    buf.writeVarInt(sequence);
+    buf.writeVarInt(length);
+    buf.writeByteArray(chunk);
+  }
+
+  public static SpellModelChunkPacket decode(FriendlyByteBuf buf) {
+    String hash = buf.readUtf(MAX_HASH_LENGTH);
+    int sequence = buf.readVarInt();
+    int length = buf.readVarInt();
+    byte[] chunk = buf.readByteArray(SpellModelSender.CHUNK_BYTES);
+    return new SpellModelChunkPacket(hash, sequence, length, chunk);
+  }
+
+  public void handle(CustomPayloadEvent.Context ctx) {
+    DistExecutor.unsafeRunWhenOn(
+        Dist.CLIENT, () -> () -> SpellModelAssembler.accept(hash, sequence, length, chunk));
+    ctx.setPacketHandled(true);
+  }
+}
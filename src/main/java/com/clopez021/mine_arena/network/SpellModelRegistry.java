@@ -0,0 +1,53 @@
+package com.clopez021.mine_arena.network;
+
+import com.clopez021.mine_arena.MineArena;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * The packed spell models the server can send, keyed by their hash. Models are registered when a
+ * spell entity is synced, so a {@link RequestSpellModelPacket} is answered by hash even after the
+ * spell that named the model is gone. The least recently used models are dropped once {@link
+ * #CAPACITY} are registered. Must only be used on the server thread.
+ */
+public final class SpellModelRegistry {
+  private SpellModelRegistry() {}
+
+  /** The most models kept at once. */
+  public static final int CAPACITY = 256;
+
+  private static final Map<String, byte[]> models =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+          return size() > CAPACITY;
+        }
+      };
+
+  /**
+   * @param hash The hash of the model.
+   * @param packed The packed blocks of the model, which must not be modified afterwards.
+   */
+  public static void register(String hash, byte[] packed) {
+    models.put(hash, packed);
+  }
+
+  /**
+   * @param hash The hash of a model.
+   * @return The packed blocks of the model, or null if it is not registered.
+   */
+  public static byte[] get(String hash) {
+    return models.get(hash);
+  }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID)
+  public static final class Events {
+    @SubscribeEvent
+    public static void onServerStopping(ServerStoppingEvent event) {
+      models.clear();
+    }
+  }
+}
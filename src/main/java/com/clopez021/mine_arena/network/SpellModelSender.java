@@ -0,0 +1,99 @@
+package com.clopez021.mine_arena.network;
+
+import com.clopez021.mine_arena.MineArena;
+import com.clopez021.mine_arena.config.ServerConfig;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.network.PacketDistributor;
+
+/**
+ * Streams requested spell models to each player as {@link SpellModelChunkPacket}s. Every player has
+ * a queue of models sent one after another, and at the end of each server tick each queue sends at
+ * most {@link ServerConfig#spellModelBytesPerTick} bytes, so a huge model is spread over several
+ * ticks rather than sent as one oversized packet. Must only be used on the server thread.
+ */
+public final class SpellModelSender {
+  private SpellModelSender() {}
+
+  /** Model bytes in each chunk, well below the custom payload limit. */
+  static final int CHUNK_BYTES = 8192;
+
+  private static final Map<UUID, ArrayDeque<Transfer>> queues = new HashMap<>();
+
+  private static final class Transfer {
+    final String hash;
+    final byte[] packed;
+    int offset;
+    int sequence;
+
+    Transfer(String hash, byte[] packed) {
+      this.hash = hash;
+      this.packed = packed;
+    }
+  }
+
+  /**
+   * Queues a model for the player, unless it is already queued.
+   *
+   * @param player The player that requested the model.
+   * @param hash The hash of the model.
+   * @param packed The packed blocks of the model.
+   */
+  public static void enqueue(ServerPlayer player, String hash, byte[] packed) {
+    ArrayDeque<Transfer> queue = queues.computeIfAbsent(player.getUUID(), id -> new ArrayDeque<>());
+    for (Transfer transfer : queue) {
+      if (transfer.hash.equals(hash)) return;
+    }
+    queue.add(new Transfer(hash, packed));
+  }
+
+  /** Sends the player's queue up to the per-tick budget. */
+  private static void sendChunks(ServerPlayer player, ArrayDeque<Transfer> queue) {
+    int budget = Math.max(CHUNK_BYTES, ServerConfig.spellModelBytesPerTick);
+    while (budget > 0 && !queue.isEmpty()) {
+      Transfer transfer = queue.peek();
+      int end = Math.min(transfer.offset + CHUNK_BYTES, transfer.packed.length);
+      PacketHandler.INSTANCE.send(
+          new SpellModelChunkPacket(
+              transfer.hash,
+              transfer.sequence++,
+              transfer.packed.length,
+              Arrays.copyOfRange(transfer.packed, transfer.offset, end)),
+          PacketDistributor.PLAYER.with(player));
+      budget -= end - transfer.offset;
+      transfer.offset = end;
+      if (transfer.offset >= transfer.packed.length) queue.poll();
+    }
+  }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID)
+  public static final class Events {
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+      if (event.phase != TickEvent.Phase.END || queues.isEmpty()) return;
+      var players = event.getServer().getPlayerList();
+      queues
+          .entrySet()
+          .removeIf(
+              entry -> {
+                ServerPlayer player = players.getPlayer(entry.getKey());
+                if (player == null) return true;
+                sendChunks(player, entry.getValue());
+                return entry.getValue().isEmpty();
+              });
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
+      queues.remove(event.getEntity().getUUID());
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.clopez021.mine_arena.network;
+
+import com.clopez021.mine_arena.client.SpellModelCache;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.network.CustomPayloadEvent;
+import net.minecraftforge.fml.DistExecutor;
+
+/**
+ * Answers a {@link RequestSpellModelPacket} for a model the server no longer has, so the client
+ * stops waiting for it.
+ */
+public class SpellModelUnavailablePacket {
+  private static final int MAX_HASH_LENGTH = 64;
+
+  private final String hash;
+
+  public SpellModelUnavailablePacket(String hash) {
+    this.hash = hash;
+  }
+
+  public void encode(FriendlyByteBuf buf) {
+    buf.writeUtf(hash, MAX_HASH_LENGTH);
+  }
+
+  public static SpellModelUnavailablePacket decode(FriendlyByteBuf buf) {
+    return new SpellModelUnavailablePacket(buf.readUtf(MAX_HASH_LENGTH));
+  }
+
+  public void handle(CustomPayloadEvent.Context ctx) {
+    ctx.enqueueWork(
+        () ->
+            DistExecutor.unsafeRunWhenOn(
+                Dist.CLIENT, () -> () -> SpellModelCache.unavailable(hash)));
+    ctx.setPacketHandled(true);
+  }
+}
@@ -2,7 +2,6 @@ package com.clopez021.mine_arena.player;
 
 import com.clopez021.mine_arena.core.entity.ModEntities;
 import com.clopez021.mine_arena.core.entity.SpellEntity;
-import com.clopez021.mine_arena.model3d.ObjModel;
 import com.clopez021.mine_arena.network.PacketHandler;
 import com.clopez021.mine_arena.network.SpellCompletePacket;
 import com.clopez021.mine_arena.spell.config.PlayerSpellConfig;
@@ -217,17 +216,10 @@ public class Player {
     // Record cast time
     lastCastTimes.put(spellName, currentTime);
 
-    SpellEntityConfig base = ps.config();
-    // Rotate blocks to match the player's yaw/pitch at cast time.
-    var rotatedBlocks =
-        ObjModel.rotateBlocks3D(base.getBlocks(), serverPlayer.getYRot(), serverPlayer.getXRot());
-    SpellEntityConfig cfg =
-        new SpellEntityConfig(
-            rotatedBlocks,
-            base.getMicroScaleRaw(), // Use raw normalized value to preserve scale
-            base.getEffectBehavior(),
-            base.getShouldMove(),
-            base.getMovementSpeed());
+    // Rotate blocks to match the player's yaw/pitch at cast time, reusing earlier casts in a
+    // similar direction. The spell keeps the hash of the unrotated model, so clients fetch it
+    // once and rotate it themselves.
+    SpellEntityConfig cfg = ps.config().rotated(serverPlayer.getYRot(), serverPlayer.getXRot());
 
     serverPlayer.server.execute(
         () -> {
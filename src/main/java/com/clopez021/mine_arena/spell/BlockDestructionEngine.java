@@ -0,0 +1,221 @@
+package com.clopez021.mine_arena.spell;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.LevelEvent;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.gameevent.GameEvent;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Breaks spheres of blocks for spell impacts. The blocks of a sphere of each radius are cached as a
+ * mask around its center block, marking the shell of blocks with a face outside the sphere. A
+ * sphere is broken by an {@link EffectScheduler.Job} going through it one chunk section at a time:
+ * sections holding only air are skipped and block states are read straight from the section. Only
+ * shell blocks update their neighbours, since the neighbours of every other block are broken as
+ * well, and only the first few blocks play break effects. Block changes are sent to clients per
+ * section by the chunk holder and relit by the light engine's queue after the tick, as for any
+ * block change. Must only be used on the server thread.
+ */
+public final class BlockDestructionEngine {
+  private BlockDestructionEngine() {}
+
+  private static final int MAX_CACHED_SPHERES = 32;
+
+  /** The most blocks of one sphere to play break particles and sounds for. */
+  private static final int MAX_BREAK_EFFECTS = 32;
+
+  /** Interior blocks skip neighbour and shape updates but are still sent to clients. */
+  private static final int INTERIOR_FLAGS = Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE;
+
+  private static final byte INSIDE = 1;
+  private static final byte SHELL = 2;
+
+  /** Masks of the sphere of each radius, over the cube of side 2 * extent + 1 around its center. */
+  private record Sphere(int extent, byte[] mask) {
+    byte at(int dx, int dy, int dz) {
+      int side = 2 * extent + 1;
+      return mask[((dx + extent) * side + dy + extent) * side + dz + extent];
+    }
+  }
+
+  private static final Map<Float, Sphere> spheres = new HashMap<>();
+
+  /**
+   * Breaks every breakable block whose center lies within the radius of the center block's center,
+   * leaving behind the fluid of waterlogged blocks. Blocks are not dropped.
+   *
+   * @param level The level to break blocks in.
+   * @param center The block at the center of the sphere.
+   * @param radius The radius of the sphere in blocks.
+   * @return A job breaking the sphere one slice of a section per step.
+   */
+  public static EffectScheduler.Job destroySphere(
+      ServerLevel level, BlockPos center, float radius) {
+    return new SphereDestruction(level, center, getSphere(Math.max(0, radius)));
+  }
+
+  /** Breaks a sphere one x-slice of a chunk section at a time. */
+  private static final class SphereDestruction implements EffectScheduler.Job {
+    private final ServerLevel level;
+    private final BlockPos center;
+    private final Sphere sphere;
+
+    /** The sections the sphere overlaps, as {@link SectionPos#asLong}. */
+    private final long[] sections;
+
+    private int sectionIndex;
+
+    /** The next x to break in the current section, or Integer.MIN_VALUE before it is started. */
+    private int nextX = Integer.MIN_VALUE;
+
+    private int broken;
+    private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+    SphereDestruction(ServerLevel level, BlockPos center, Sphere sphere) {
+      this.level = level;
+      this.center = center.immutable();
+      this.sphere = sphere;
+
+      int extent = sphere.extent();
+      int minSx = SectionPos.blockToSectionCoord(center.getX() - extent);
+      int maxSx = SectionPos.blockToSectionCoord(center.getX() + extent);
+      int minSy =
+          Math.max(level.getMinSection(), SectionPos.blockToSectionCoord(center.getY() - extent));
+      int maxSy =
+          Math.min(
+              level.getMaxSection() - 1, SectionPos.blockToSectionCoord(center.getY() + extent));
+      int minSz = SectionPos.blockToSectionCoord(center.getZ() - extent);
+      int maxSz = SectionPos.blockToSectionCoord(center.getZ() + extent);
+      int count = (maxSx - minSx + 1) * Math.max(0, maxSy - minSy + 1) * (maxSz - minSz + 1);
+      this.sections = new long[count];
+      int i = 0;
+      // Sections of a chunk one after another, so each chunk is looked up in a row
+      for (int sx = minSx; sx <= maxSx; ++sx) {
+        for (int sz = minSz; sz <= maxSz; ++sz) {
+          for (int sy = minSy; sy <= maxSy; ++sy) sections[i++] = SectionPos.asLong(sx, sy, sz);
+        }
+      }
+    }
+
+    @Override
+    public boolean step() {
+      while (sectionIndex < sections.length) {
+        long sectionPos = sections[sectionIndex];
+        int sx = SectionPos.x(sectionPos), sy = SectionPos.y(sectionPos);
+        int sz = SectionPos.z(sectionPos);
+        LevelChunkSection section =
+            level.getChunk(sx, sz).getSection(level.getSectionIndexFromSectionY(sy));
+        int extent = sphere.extent();
+        int maxX = Math.min(SectionPos.sectionToBlockCoord(sx, 15), center.getX() + extent);
+        if (nextX == Integer.MIN_VALUE) {
+          if (section.hasOnlyAir()) {
+            ++sectionIndex;
+            continue;
+          }
+          nextX = Math.max(SectionPos.sectionToBlockCoord(sx), center.getX() - extent);
+        }
+
+        breakSlice(section, nextX, sy, sz);
+        if (++nextX > maxX) {
+          ++sectionIndex;
+          nextX = Integer.MIN_VALUE;
+        }
+        break;
+      }
+
+      if (sectionIndex < sections.length) return false;
+      if (broken > 0) level.gameEvent(null, GameEvent.BLOCK_DESTROY, Vec3.atCenterOf(center));
+      return true;
+    }
+
+    /** Breaks the blocks of the sphere at one x in a section. */
+    private void breakSlice(LevelChunkSection section, int x, int sy, int sz) {
+      int extent = sphere.extent();
+      int cx = center.getX(), cy = center.getY(), cz = center.getZ();
+      int minY = Math.max(SectionPos.sectionToBlockCoord(sy), cy - extent);
+      int maxY = Math.min(SectionPos.sectionToBlockCoord(sy, 15), cy + extent);
+      int minZ = Math.max(SectionPos.sectionToBlockCoord(sz), cz - extent);
+      int maxZ = Math.min(SectionPos.sectionToBlockCoord(sz, 15), cz + extent);
+      for (int y = minY; y <= maxY; ++y) {
+        for (int z = minZ; z <= maxZ; ++z) {
+          byte mask = sphere.at(x - cx, y - cy, z - cz);
+          if (mask == 0) continue;
+          BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+          BlockState remaining = state.getFluidState().createLegacyBlock();
+          if (state.isAir()) continue;
+          pos.set(x, y, z);
+          if (state == remaining) {
+            // A plain fluid is left as it is, but gets no neighbour update to flow into the
+            // blocks broken around it
+            FluidState fluid = state.getFluidState();
+            level.scheduleTick(pos, fluid.getType(), fluid.getType().getTickDelay(level));
+            continue;
+          }
+          if (state.getDestroySpeed(level, pos) < 0) continue;
+
+          if (broken < MAX_BREAK_EFFECTS) {
+            level.levelEvent(LevelEvent.PARTICLES_DESTROY_BLOCK, pos, Block.getId(state));
+          }
+          int flags = (mask & SHELL) != 0 ? Block.UPDATE_ALL : INTERIOR_FLAGS;
+          level.setBlock(pos, remaining, flags);
+          ++broken;
+        }
+      }
+    }
+  }
+
+  private static Sphere getSphere(float radius) {
+    Sphere sphere = spheres.get(radius);
+    if (sphere == null) {
+      if (spheres.size() >= MAX_CACHED_SPHERES) spheres.clear();
+      sphere = buildSphere(radius);
+      spheres.put(radius, sphere);
+    }
+    return sphere;
+  }
+
+  private static Sphere buildSphere(float radius) {
+    int extent = (int) Math.floor(radius);
+    int side = 2 * extent + 1;
+    double radiusSqr = (double) radius * radius;
+    byte[] mask = new byte[side * side * side];
+    Sphere sphere = new Sphere(extent, mask);
+    for (int dx = -extent; dx <= extent; ++dx) {
+      for (int dy = -extent; dy <= extent; ++dy) {
+        for (int dz = -extent; dz <= extent; ++dz) {
+          if (dx * dx + dy * dy + dz * dz <= radiusSqr) {
+            mask[((dx + extent) * side + dy + extent) * side + dz + extent] = INSIDE;
+          }
+        }
+      }
+    }
+
+    for (int dx = -extent; dx <= extent; ++dx) {
+      for (int dy = -extent; dy <= extent; ++dy) {
+        for (int dz = -extent; dz <= extent; ++dz) {
+          int index = ((dx + extent) * side + dy + extent) * side + dz + extent;
+          if (mask[index] == 0) continue;
+          boolean shell =
+              Math.abs(dx) == extent
+                  || Math.abs(dy) == extent
+                  || Math.abs(dz) == extent
+                  || sphere.at(dx - 1, dy, dz) == 0
+                  || sphere.at(dx + 1, dy, dz) == 0
+                  || sphere.at(dx, dy - 1, dz) == 0
+                  || sphere.at(dx, dy + 1, dz) == 0
+                  || sphere.at(dx, dy, dz - 1) == 0
+                  || sphere.at(dx, dy, dz + 1) == 0;
+          if (shell) mask[index] |= SHELL;
+        }
+      }
+    }
+    return sphere;
+  }
+}
@@ -0,0 +1,99 @@
+package com.clopez021.mine_arena.spell;
+
+import com.clopez021.mine_arena.MineArena;
+import com.clopez021.mine_arena.config.ServerConfig;
+import com.mojang.logging.LogUtils;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.slf4j.Logger;
+
+/**
+ * Runs the heavy side effects of spell impacts, like breaking blocks and spawning entities, as jobs
+ * done a step at a time. At the end of each server tick jobs are stepped until {@link
+ * ServerConfig#effectBudgetMs} has passed, so several impacts at once are spread over ticks rather
+ * than stalling one. Players take turns step by step, so one player's impacts cannot hold back
+ * another's, and the jobs of each player run in the order they were scheduled. Must only be used
+ * on the server thread.
+ */
+public final class EffectScheduler {
+  private EffectScheduler() {}
+
+  private static final Logger LOGGER = LogUtils.getLogger();
+
+  /** A side effect done a step at a time. Each step should take well under a millisecond. */
+  @FunctionalInterface
+  public interface Job {
+    /**
+     * Does the next step of the job.
+     *
+     * @return Whether the job is done.
+     */
+    boolean step();
+  }
+
+  /** Queues jobs of spells without an owner. */
+  private static final UUID NO_OWNER = new UUID(0, 0);
+
+  /** Pending jobs of each owner, in the order they were scheduled. */
+  private static final Map<UUID, ArrayDeque<Job>> queues = new HashMap<>();
+
+  /** Owners with pending jobs, the next to step first. */
+  private static final ArrayDeque<UUID> turns = new ArrayDeque<>();
+
+  /**
+   * @param owner The player whose spell the job belongs to, or null.
+   * @param job The job to run after the owner's other jobs.
+   */
+  public static void schedule(UUID owner, Job job) {
+    UUID key = owner != null ? owner : NO_OWNER;
+    ArrayDeque<Job> queue = queues.get(key);
+    if (queue == null) {
+      queue = new ArrayDeque<>();
+      queues.put(key, queue);
+      turns.add(key);
+    }
+    queue.add(job);
+  }
+
+  /** Steps jobs until the budget is spent, always at least one so every job gets done. */
+  private static void run() {
+    long deadline = System.nanoTime() + ServerConfig.effectBudgetMs * 1_000_000L;
+    do {
+      UUID owner = turns.poll();
+      ArrayDeque<Job> queue = queues.get(owner);
+      boolean done;
+      try {
+        done = queue.peek().step();
+      } catch (RuntimeException e) {
+        LOGGER.error("Spell effect failed, dropping it", e);
+        done = true;
+      }
+      if (done) queue.poll();
+      if (queue.isEmpty()) {
+        queues.remove(owner);
+      } else {
+        turns.add(owner);
+      }
+    } while (!turns.isEmpty() && System.nanoTime() < deadline);
+  }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID)
+  public static final class Events {
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+      if (event.phase == TickEvent.Phase.END && !turns.isEmpty()) run();
+    }
+
+    @SubscribeEvent
+    public static void onServerStopping(ServerStoppingEvent event) {
+      queues.clear();
+      turns.clear();
+    }
+  }
+}
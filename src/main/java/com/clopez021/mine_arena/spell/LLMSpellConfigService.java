@@ -5,6 +5,7 @@ import com.clopez021.mine_arena.integration.openrouter.Message;
 import com.clopez021.mine_arena.integration.openrouter.OpenRouterClient;
 import com.clopez021.mine_arena.spell.behavior.collision.SpellEffectBehaviorConfig;
 import com.clopez021.mine_arena.spell.config.SpellEntityConfig;
+import com.clopez021.mine_arena.util.ModelUtils.SpellVoxels;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -200,7 +201,10 @@ public final class LLMSpellConfigService {
       System.out.println(
           "Skipping Meshy model generation - spell triggers on cast and despawns immediately");
     } else {
-      blocks = MeshyClient.buildBlocksFromPrompt(prompt);
+      SpellVoxels voxels = MeshyClient.buildBlocksFromPrompt(prompt);
+      blocks = voxels.blocks();
+      // Keep the visual size of models that were downsampled to fit the voxel budget
+      microScale = voxels.scale(microScale);
     }
 
     return new SpellEntityConfig(blocks, microScale, behavior, shouldMove, speed);
@@ -4,13 +4,13 @@ import com.clopez021.mine_arena.core.entity.SpellEntity;
 import com.clopez021.mine_arena.util.IdResolver;
 import java.util.List;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
 
 /** Utility class for handling spell collision effects and interactions. */
@@ -22,23 +22,15 @@ public class SpellCollisionHandler {
    */
   public static List<LivingEntity> collectAffectedEntities(
       SpellEntity spell, float radius, boolean affectOwner) {
-    Vec3 center = spell.position();
-    AABB box =
-        new AABB(
-            center.x - radius,
-            center.y - radius,
-            center.z - radius,
-            center.x + radius,
-            center.y + radius,
-            center.z + radius);
-    List<LivingEntity> targets = spell.level().getEntitiesOfClass(LivingEntity.class, box);
-    targets.removeIf(
-        entity ->
-            (!affectOwner
-                    && spell.getOwnerPlayerId() != null
-                    && entity.getUUID().equals(spell.getOwnerPlayerId()))
-                || entity.position().distanceTo(center) > radius);
-    return targets;
+    if (!(spell.level() instanceof ServerLevel level)) return List.of();
+    return SpellTickSystem.get(level)
+        .livingWithin(
+            spell.position(),
+            radius,
+            entity ->
+                affectOwner
+                    || spell.getOwnerPlayerId() == null
+                    || !entity.getUUID().equals(spell.getOwnerPlayerId()));
   }
 
   /** Applies configured status effects to the target entities. */
@@ -59,13 +51,19 @@ public class SpellCollisionHandler {
     }
   }
 
-  /** Spawns entities and places blocks on impact based on the spell's configuration. */
+  /**
+   * Spawns entities and places blocks on impact based on the spell's configuration. Each block or
+   * entity is one step of a job on the {@link EffectScheduler}, around the spell's position at
+   * impact.
+   */
   public static void spawnOrPlaceConfiguredOnImpact(SpellEntity spell) {
     if (spell.level().isClientSide) return;
     var behavior = spell.getConfig().getEffectBehavior();
     float radius = Math.max(0.0f, behavior.getRadius());
     var access = spell.level().registryAccess();
     Level level = spell.level();
+    Vec3 center = spell.position();
+    RandomSource random = spell.getRandomSource();
 
     // Handle block placement
     String blockId = behavior.getPlaceBlockId();
@@ -75,12 +73,16 @@ public class SpellCollisionHandler {
       if (blockOpt.isPresent()) {
         Block block = blockOpt.get();
         BlockState state = block.defaultBlockState();
-        for (int i = 0; i < blockCount; i++) {
-          BlockPos target = findPlacementSpot(spell, level, radius, 6, state);
-          if (target != null) {
-            level.setBlock(target, state, 3);
-          }
-        }
+        int[] placed = {0};
+        EffectScheduler.schedule(
+            spell.getOwnerPlayerId(),
+            () -> {
+              BlockPos target = findPlacementSpot(random, center, level, radius, 6, state);
+              if (target != null) {
+                level.setBlock(target, state, 3);
+              }
+              return ++placed[0] >= blockCount;
+            });
       }
     }
 
@@ -91,16 +93,20 @@ public class SpellCollisionHandler {
       var entityOpt = IdResolver.resolveEntityTypeStrict(access, entityId);
       if (entityOpt.isPresent()) {
         var entityType = entityOpt.get();
-        for (int i = 0; i < entityCount; i++) {
-          BlockPos target = findPlacementSpot(spell, level, radius, 6, null);
-          if (target != null) {
-            Entity spawned = entityType.create(level);
-            if (spawned != null) {
-              spawned.setPos(target.getX() + 0.5, target.getY(), target.getZ() + 0.5);
-              level.addFreshEntity(spawned);
-            }
-          }
-        }
+        int[] spawnedCount = {0};
+        EffectScheduler.schedule(
+            spell.getOwnerPlayerId(),
+            () -> {
+              BlockPos target = findPlacementSpot(random, center, level, radius, 6, null);
+              if (target != null) {
+                Entity spawned = entityType.create(level);
+                if (spawned != null) {
+                  spawned.setPos(target.getX() + 0.5, target.getY(), target.getZ() + 0.5);
+                  level.addFreshEntity(spawned);
+                }
+              }
+              return ++spawnedCount[0] >= entityCount;
+            });
       }
     }
   }
@@ -110,17 +116,17 @@ public class SpellCollisionHandler {
    * downward. If a BlockState is provided, also require that it can survive at the target.
    */
   private static BlockPos findPlacementSpot(
-      SpellEntity spell,
+      RandomSource random,
+      Vec3 center,
       Level level,
       float radius,
       int attempts,
       @javax.annotation.Nullable BlockState state) {
-    RandomSource random = spell.getRandomSource();
     double angle = random.nextDouble() * Math.PI * 2.0;
     double r = radius * Math.sqrt(random.nextDouble());
-    int baseX = (int) Math.floor(spell.getX() + Math.cos(angle) * r);
-    int baseZ = (int) Math.floor(spell.getZ() + Math.sin(angle) * r);
-    int baseY = (int) Math.floor(spell.getY());
+    int baseX = (int) Math.floor(center.x + Math.cos(angle) * r);
+    int baseZ = (int) Math.floor(center.z + Math.sin(angle) * r);
+    int baseY = (int) Math.floor(center.y);
     BlockPos base = new BlockPos(baseX, baseY, baseZ);
     for (int dy = 0; dy < attempts; dy++) {
       BlockPos target = base.above(dy);
@@ -155,45 +161,22 @@ public class SpellCollisionHandler {
     }
   }
 
-  /** Breaks blocks in a spherical radius with configurable depth/layers. */
+  /**
+   * Breaks blocks in a spherical radius with configurable depth/layers, as a job on the {@link
+   * EffectScheduler}. Each layer is a sphere one block smaller around the same center, so the
+   * outermost layer covers the others.
+   */
   public static void breakBlocksInRadius(SpellEntity spell, float radius, int depth) {
-    if (spell.level().isClientSide || radius <= 0.0f || depth <= 0) return;
-
-    Vec3 center = spell.position();
-
-    // Break blocks in layers from surface inward
-    for (int layer = 0; layer < depth; layer++) {
-      int minX = (int) Math.floor(center.x - radius);
-      int maxX = (int) Math.ceil(center.x + radius);
-      int minY = (int) Math.floor(center.y - radius);
-      int maxY = (int) Math.ceil(center.y + radius);
-      int minZ = (int) Math.floor(center.z - radius);
-      int maxZ = (int) Math.ceil(center.z + radius);
-
-      for (int x = minX; x <= maxX; x++) {
-        for (int y = minY; y <= maxY; y++) {
-          for (int z = minZ; z <= maxZ; z++) {
-            BlockPos pos = new BlockPos(x, y, z);
-            double dist = center.distanceTo(Vec3.atCenterOf(pos));
-            if (dist <= radius) {
-              BlockState state = spell.level().getBlockState(pos);
-              if (!state.isAir() && state.getDestroySpeed(spell.level(), pos) >= 0) {
-                spell.level().destroyBlock(pos, false);
-              }
-            }
-          }
-        }
-      }
-
-      // Reduce radius for next layer to create depth effect
-      radius = Math.max(0.0f, radius - 1.0f);
-      if (radius <= 0.0f) break;
-    }
+    if (!(spell.level() instanceof ServerLevel level) || radius <= 0.0f || depth <= 0) return;
+    EffectScheduler.schedule(
+        spell.getOwnerPlayerId(),
+        BlockDestructionEngine.destroySphere(level, spell.blockPosition(), radius));
   }
 
   /**
    * Main effect trigger that applies all configured effects: damage, knockback, block destruction,
-   * status effects, and spawning.
+   * status effects, and spawning. Effects on the affected entities apply at once, while block
+   * destruction, placement and spawning are scheduled to run within the per-tick effect budget.
    */
   public static void triggerEffect(
       SpellEntity spell, List<LivingEntity> affectedEntities, int ticksSinceLastTrigger) {
@@ -0,0 +1,198 @@
+package com.clopez021.mine_arena.spell;
+
+import com.clopez021.mine_arena.MineArena;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntitySelector;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.EntityHitResult;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * The living entity broadphase shared by every spell of a server level. The first spell query of a
+ * server tick hashes each living entity of the level into every cell of {@link #CELL_SIZE} blocks
+ * its bounding box overlaps, and all sweep and area queries of the spells in that tick are
+ * answered from the cells the query overlaps rather than by searching the level once per spell.
+ * Candidates are tested against their current positions, so entities that moved earlier in the
+ * tick are still found as long as they moved less than {@link #MOVE_SLACK} blocks. Spectators are
+ * never found. Must only be used on the server thread.
+ */
+public final class SpellTickSystem {
+  private static final int CELL_SIZE = 8;
+
+  /** How far an entity may move within a tick after the cells were built and still be found. */
+  private static final double MOVE_SLACK = 2.0;
+
+  private static final Map<LevelAccessor, SpellTickSystem> systems = new HashMap<>();
+
+  private final ServerLevel level;
+
+  /**
+   * Entries of the entities whose box grown by {@link #MOVE_SLACK} overlaps each cell, as of {@link
+   * #builtTick}.
+   */
+  private final Map<Long, List<Entry>> cells = new HashMap<>();
+
+  private int builtTick = -1;
+
+  /**
+   * An entity in a cell, with the lowest cell it was hashed into along each axis. An entity in
+   * several cells of a query is only visited in the lowest of them.
+   */
+  private record Entry(LivingEntity entity, int minX, int minY, int minZ) {}
+
+  private SpellTickSystem(ServerLevel level) {
+    this.level = level;
+  }
+
+  /**
+   * @param level The level of the spells.
+   * @return The broadphase of the level.
+   */
+  public static SpellTickSystem get(ServerLevel level) {
+    return systems.computeIfAbsent(level, l -> new SpellTickSystem(level));
+  }
+
+  /**
+   * Sweeps a box along a motion and finds the first entity it touches. Each entity's bounding box
+   * is grown by half the size of the swept box, so the sweep is a segment of the box's center
+   * clipped against the grown boxes.
+   *
+   * @param except The entity to leave out, usually the one whose box is swept.
+   * @param box The box at the start of the motion.
+   * @param motion How far the box moves.
+   * @param filter Which living entities count.
+   * @return The first living entity touched and the center of the box when it touches, or null if
+   *     the box touches none.
+   */
+  public EntityHitResult sweep(
+      Entity except, AABB box, Vec3 motion, Predicate<LivingEntity> filter) {
+    Vec3 from = box.getCenter();
+    Vec3 to = from.add(motion);
+    double halfX = box.getXsize() / 2, halfY = box.getYsize() / 2, halfZ = box.getZsize() / 2;
+    EntityHitResult[] first = {null};
+    double[] firstDistanceSqr = {Double.MAX_VALUE};
+    visit(
+        box.expandTowards(motion),
+        entity -> {
+          if (entity == except || !filter.test(entity)) return false;
+          AABB grown = entity.getBoundingBox().inflate(halfX, halfY, halfZ);
+          // Already touching at the start, otherwise where the path enters the grown box
+          Vec3 hit = grown.contains(from) ? from : grown.clip(from, to).orElse(null);
+          if (hit != null && from.distanceToSqr(hit) < firstDistanceSqr[0]) {
+            firstDistanceSqr[0] = from.distanceToSqr(hit);
+            first[0] = new EntityHitResult(entity, hit);
+          }
+          return false;
+        });
+    return first[0];
+  }
+
+  /**
+   * @param center The center of the sphere.
+   * @param radius The radius of the sphere.
+   * @param filter Which entities count.
+   * @return The living entities whose position lies within the sphere, without spectators.
+   */
+  public List<LivingEntity> livingWithin(
+      Vec3 center, double radius, Predicate<LivingEntity> filter) {
+    List<LivingEntity> found = new ArrayList<>();
+    double radiusSqr = radius * radius;
+    visit(
+        new AABB(center, center).inflate(radius),
+        entity -> {
+          if (entity.position().distanceToSqr(center) <= radiusSqr && filter.test(entity)) {
+            found.add(entity);
+          }
+          return false;
+        });
+    return found;
+  }
+
+  /**
+   * Visits the live entities of the cells a box overlaps, each once, until the visitor returns
+   * true.
+   *
+   * @return Whether the visitor returned true.
+   */
+  private boolean visit(AABB box, Predicate<LivingEntity> visitor) {
+    refresh();
+    int minX = cell(box.minX), maxX = cell(box.maxX);
+    int minY = cell(box.minY), maxY = cell(box.maxY);
+    int minZ = cell(box.minZ), maxZ = cell(box.maxZ);
+    for (int x = minX; x <= maxX; ++x) {
+      for (int y = minY; y <= maxY; ++y) {
+        for (int z = minZ; z <= maxZ; ++z) {
+          List<Entry> entries = cells.get(key(x, y, z));
+          if (entries == null) continue;
+          for (Entry entry : entries) {
+            // Only in the first cell of the query the entity is in
+            if (x != Math.max(minX, entry.minX)
+                || y != Math.max(minY, entry.minY)
+                || z != Math.max(minZ, entry.minZ)) {
+              continue;
+            }
+            LivingEntity entity = entry.entity;
+            // Entities discarded earlier in the tick are gone from the level
+            if (!entity.isRemoved()
+                && EntitySelector.NO_SPECTATORS.test(entity)
+                && visitor.test(entity)) {
+              return true;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Rehashes the living entities of the level once per server tick. */
+  private void refresh() {
+    int tick = level.getServer().getTickCount();
+    if (tick == builtTick) return;
+    builtTick = tick;
+    cells.clear();
+    for (Entity e : level.getAllEntities()) {
+      if (!(e instanceof LivingEntity entity)) continue;
+      AABB box = entity.getBoundingBox().inflate(MOVE_SLACK);
+      int minX = cell(box.minX), maxX = cell(box.maxX);
+      int minY = cell(box.minY), maxY = cell(box.maxY);
+      int minZ = cell(box.minZ), maxZ = cell(box.maxZ);
+      Entry entry = new Entry(entity, minX, minY, minZ);
+      for (int x = minX; x <= maxX; ++x) {
+        for (int y = minY; y <= maxY; ++y) {
+          for (int z = minZ; z <= maxZ; ++z) {
+            cells.computeIfAbsent(key(x, y, z), k -> new ArrayList<>()).add(entry);
+          }
+        }
+      }
+    }
+  }
+
+  private static int cell(double coordinate) {
+    return Mth.floor(coordinate / CELL_SIZE);
+  }
+
+  private static long key(int x, int y, int z) {
+    return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | ((long) z & 0x1FFFFF);
+  }
+
+  @Mod.EventBusSubscriber(modid = MineArena.MOD_ID)
+  public static final class Events {
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+      systems.remove(event.getLevel());
+    }
+  }
+}
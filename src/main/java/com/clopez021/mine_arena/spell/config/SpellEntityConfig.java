@@ -1,13 +1,22 @@
 package com.clopez021.mine_arena.spell.config;
 
+import com.clopez021.mine_arena.model3d.util.PackedVoxels;
+import com.clopez021.mine_arena.model3d.util.RotationCache;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
 import com.clopez021.mine_arena.spell.behavior.collision.SpellEffectBehaviorConfig;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
@@ -21,6 +30,9 @@ import net.minecraftforge.server.ServerLifecycleHooks;
  */
 public class SpellEntityConfig extends BaseConfig {
   private Map<BlockPos, BlockState> blocks;
+  // The unrotated model the blocks were rotated from, and the RotationCache buckets rotated by
+  private Map<BlockPos, BlockState> baseBlocks;
+  private int yawBucket = 0, pitchBucket = 0;
   private float microScale;
   private SpellEffectBehaviorConfig behavior = new SpellEffectBehaviorConfig();
 
@@ -31,6 +43,15 @@ public class SpellEntityConfig extends BaseConfig {
   // Cached direction vector once computed; persisted in NBT
   private float dirX = 0f, dirY = 0f, dirZ = 0f;
 
+  // Base blocks packed with PackedVoxels and the hash naming them, computed on first use and
+  // shared by every rotation of the same base
+  private byte[] packedBlocks;
+  private String modelHash;
+  // Set when the config was synced by hash only and its blocks are still to be fetched
+  private boolean modelPending = false;
+  // Min corner and exclusive max corner of the blocks, synced so a pending model has its size
+  private int[] bounds;
+
   private static Map<BlockPos, BlockState> defaultUnitAirBlock() {
     return Map.of(new BlockPos(0, 0, 0), Blocks.AIR.defaultBlockState());
   }
@@ -43,6 +64,7 @@ public class SpellEntityConfig extends BaseConfig {
       boolean shouldMove,
       float speed) {
     this.blocks = (blocks != null && !blocks.isEmpty()) ? blocks : defaultUnitAirBlock();
+    this.baseBlocks = this.blocks;
     this.microScale = microScale;
     this.behavior = behavior != null ? behavior : new SpellEffectBehaviorConfig();
     this.shouldMove = shouldMove;
@@ -56,6 +78,35 @@ public class SpellEntityConfig extends BaseConfig {
         defaultUnitAirBlock(), 1.0f, new SpellEffectBehaviorConfig(), false, 0.0f);
   }
 
+  /**
+   * A config with this config's unrotated model rotated through {@link RotationCache}. The packed
+   * model and its hash are those of the unrotated model and are shared with this config, so every
+   * rotation of a spell is packed and hashed once, and clients fetch the model once and rotate it
+   * themselves.
+   *
+   * @param yawDegrees The yaw to rotate by.
+   * @param pitchDegrees The pitch to rotate by.
+   */
+  public SpellEntityConfig rotated(float yawDegrees, float pitchDegrees) {
+    SpellEntityConfig cfg =
+        new SpellEntityConfig(baseBlocks, microScale, behavior, shouldMove, movementSpeed);
+    cfg.packedBlocks = getPackedBlocks();
+    cfg.modelHash = getModelHash();
+    cfg.setRotation(RotationCache.yawBucket(yawDegrees), RotationCache.pitchBucket(pitchDegrees));
+    return cfg;
+  }
+
+  /** Rotates the base blocks by the given buckets, keeping them as they are when both are 0. */
+  private void setRotation(int yawBucket, int pitchBucket) {
+    this.yawBucket = yawBucket;
+    this.pitchBucket = pitchBucket;
+    this.blocks =
+        yawBucket == 0 && pitchBucket == 0
+            ? baseBlocks
+            : RotationCache.rotateBucketed(baseBlocks, yawBucket, pitchBucket);
+    this.bounds = null;
+  }
+
   // Standard getters
   public Map<BlockPos, BlockState> getBlocks() {
     return blocks;
@@ -119,21 +170,119 @@ public class SpellEntityConfig extends BaseConfig {
     return v;
   }
 
+  /**
+   * @return The unrotated blocks packed by {@link PackedVoxels}, computed once per config and
+   *     shared with its rotations.
+   */
+  public byte[] getPackedBlocks() {
+    if (packedBlocks == null) packedBlocks = packBlocks(baseBlocks);
+    return packedBlocks;
+  }
+
+  /**
+   * @return The hash of the packed unrotated blocks, naming the spell's model in client caches.
+   */
+  public String getModelHash() {
+    if (modelHash == null) modelHash = hashModel(getPackedBlocks());
+    return modelHash;
+  }
+
+  /**
+   * @return The min corner and exclusive max corner of the blocks as {minX, minY, minZ, maxX,
+   *     maxY, maxZ}, or those of the model still being fetched.
+   */
+  public int[] getBounds() {
+    if (bounds == null) {
+      int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+      int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+      for (BlockPos p : blocks.keySet()) {
+        minX = Math.min(minX, p.getX());
+        minY = Math.min(minY, p.getY());
+        minZ = Math.min(minZ, p.getZ());
+        maxX = Math.max(maxX, p.getX() + 1);
+        maxY = Math.max(maxY, p.getY() + 1);
+        maxZ = Math.max(maxZ, p.getZ() + 1);
+      }
+      bounds = new int[] {minX, minY, minZ, maxX, maxY, maxZ};
+    }
+    return bounds;
+  }
+
+  /**
+   * @return Whether the config was synced by model hash and its blocks are only a placeholder.
+   */
+  public boolean isModelPending() {
+    return modelPending;
+  }
+
+  // Client-side updates, one per synced part of the config
+
+  /**
+   * Replaces the model with one synced by {@link #toModelSyncNBT()}.
+   *
+   * @param tag The synced model.
+   * @param blocks The unrotated blocks named by the model's hash, or null to show a placeholder
+   *     until they are fetched. They are rotated by the synced buckets here.
+   */
+  public void applyModelSyncNBT(CompoundTag tag, Map<BlockPos, BlockState> blocks) {
+    this.baseBlocks = (blocks != null && !blocks.isEmpty()) ? blocks : defaultUnitAirBlock();
+    this.microScale = tag.contains("microScale", Tag.TAG_FLOAT) ? tag.getFloat("microScale") : 1.0f;
+    this.modelHash = tag.getString("modelHash");
+    this.packedBlocks = null;
+    this.modelPending = blocks == null;
+    if (modelPending) {
+      this.blocks = baseBlocks;
+      int[] synced = tag.getIntArray("bounds");
+      this.bounds = synced.length == 6 ? synced : null;
+    } else {
+      setRotation(tag.getInt("yaw"), tag.getInt("pitch"));
+    }
+  }
+
+  public void setEffectBehavior(SpellEffectBehaviorConfig behavior) {
+    this.behavior = behavior != null ? behavior : new SpellEffectBehaviorConfig();
+  }
+
+  /** Replaces the motion state with one written by {@link #toMotionNBT()}. */
+  public void applyMotionNBT(CompoundTag tag) {
+    this.shouldMove = tag.contains("shouldMove", Tag.TAG_BYTE) && tag.getBoolean("shouldMove");
+    this.movementSpeed =
+        tag.contains("movementSpeed", Tag.TAG_FLOAT) ? tag.getFloat("movementSpeed") : 0.0f;
+    // Restore cached direction vectors if present
+    if (tag.contains("dirX", Tag.TAG_FLOAT)) this.dirX = tag.getFloat("dirX");
+    if (tag.contains("dirY", Tag.TAG_FLOAT)) this.dirY = tag.getFloat("dirY");
+    if (tag.contains("dirZ", Tag.TAG_FLOAT)) this.dirZ = tag.getFloat("dirZ");
+  }
+
   @Override
   public CompoundTag toNBT() {
-    CompoundTag tag = new CompoundTag();
-    ListTag blocksList = new ListTag();
-    for (var entry : blocks.entrySet()) {
-      CompoundTag b = new CompoundTag();
-      b.putInt("x", entry.getKey().getX());
-      b.putInt("y", entry.getKey().getY());
-      b.putInt("z", entry.getKey().getZ());
-      b.putInt("blockId", BuiltInRegistries.BLOCK.getId(entry.getValue().getBlock()));
-      blocksList.add(b);
-    }
-    tag.put("blocks", blocksList);
+    CompoundTag tag = toMotionNBT();
+    tag.putByteArray("voxels", getPackedBlocks());
+    tag.putInt("yaw", yawBucket);
+    tag.putInt("pitch", pitchBucket);
     tag.putFloat("microScale", microScale);
     tag.put("behavior", behavior.toNBT());
+    return tag;
+  }
+
+  /**
+   * The model as synced to clients: the blocks are replaced by the hash of the unrotated model,
+   * which clients resolve from their own cache or fetch once per model, and the rotation buckets
+   * they rotate it by. Only changes with the spell's blocks.
+   */
+  public CompoundTag toModelSyncNBT() {
+    CompoundTag tag = new CompoundTag();
+    tag.putString("modelHash", getModelHash());
+    tag.putInt("yaw", yawBucket);
+    tag.putInt("pitch", pitchBucket);
+    tag.putFloat("microScale", microScale);
+    tag.putIntArray("bounds", getBounds());
+    return tag;
+  }
+
+  /** The motion state, synced apart from the model so moving never resends it. */
+  public CompoundTag toMotionNBT() {
+    CompoundTag tag = new CompoundTag();
     tag.putBoolean("shouldMove", shouldMove);
     tag.putFloat("movementSpeed", movementSpeed);
     tag.putFloat("dirX", dirX);
@@ -142,9 +291,80 @@ public class SpellEntityConfig extends BaseConfig {
     return tag;
   }
 
+  /**
+   * @param packed Blocks packed by {@link #getPackedBlocks()}.
+   * @return The hex SHA-256 of the packed blocks.
+   */
+  public static String hashModel(byte[] packed) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(packed));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Packs blocks with {@link PackedVoxels}, naming each block by its registry key so the array
+   * stays valid when block ids shift between game versions.
+   */
+  private static byte[] packBlocks(Map<BlockPos, BlockState> blocks) {
+    List<Block> palette = new ArrayList<>();
+    Map<Block, Integer> indices = new HashMap<>();
+    VoxelGrid grid = new VoxelGrid(blocks.size());
+    for (var entry : blocks.entrySet()) {
+      BlockPos pos = entry.getKey();
+      Block block = entry.getValue().getBlock();
+      int index =
+          indices.computeIfAbsent(
+              block,
+              b -> {
+                palette.add(b);
+                return palette.size() - 1;
+              });
+      grid.put(pos.getX(), pos.getY(), pos.getZ(), index);
+    }
+    return PackedVoxels.encode(
+        grid, index -> BuiltInRegistries.BLOCK.getKey(palette.get(index)).toString());
+  }
+
+  /**
+   * @return The blocks packed by {@link #getPackedBlocks()}, without blocks missing from the
+   *     registry, or no blocks if the array is malformed.
+   */
+  public static Map<BlockPos, BlockState> unpackBlocks(byte[] bytes) {
+    List<BlockState> palette = new ArrayList<>();
+    VoxelGrid grid;
+    try {
+      grid =
+          PackedVoxels.decode(
+              bytes,
+              name -> {
+                ResourceLocation key = ResourceLocation.tryParse(name);
+                if (key == null) return -1;
+                return BuiltInRegistries.BLOCK
+                    .getOptional(key)
+                    .map(
+                        block -> {
+                          palette.add(block.defaultBlockState());
+                          return palette.size() - 1;
+                        })
+                    .orElse(-1);
+              });
+    } catch (IllegalArgumentException e) {
+      return new HashMap<>();
+    }
+
+    Map<BlockPos, BlockState> blocks = new HashMap<>(grid.size() * 2);
+    grid.forEach((x, y, z, index) -> blocks.put(new BlockPos(x, y, z), palette.get(index)));
+    return blocks;
+  }
+
   public static SpellEntityConfig fromNBT(CompoundTag tag) {
     Map<BlockPos, BlockState> blocks = new HashMap<>();
-    if (tag.contains("blocks", Tag.TAG_LIST)) {
+    if (tag.contains("voxels", Tag.TAG_BYTE_ARRAY)) {
+      blocks = unpackBlocks(tag.getByteArray("voxels"));
+    } else if (tag.contains("blocks", Tag.TAG_LIST)) {
+      // Configs saved before blocks were packed
       ListTag blocksList = tag.getList("blocks", Tag.TAG_COMPOUND);
       for (Tag t : blocksList) {
         if (t instanceof CompoundTag ct) {
@@ -163,16 +383,10 @@ public class SpellEntityConfig extends BaseConfig {
             ? SpellEffectBehaviorConfig.fromNBT(tag.getCompound("behavior"))
             : new SpellEffectBehaviorConfig();
 
-    boolean shouldMove = tag.contains("shouldMove", Tag.TAG_BYTE) && tag.getBoolean("shouldMove");
-    float speed =
-        tag.contains("movementSpeed", Tag.TAG_FLOAT) ? tag.getFloat("movementSpeed") : 0.0f;
-
-    SpellEntityConfig cfg = new SpellEntityConfig(blocks, microScale, behavior, shouldMove, speed);
-
-    // Restore cached direction vectors if present
-    if (tag.contains("dirX", Tag.TAG_FLOAT)) cfg.dirX = tag.getFloat("dirX");
-    if (tag.contains("dirY", Tag.TAG_FLOAT)) cfg.dirY = tag.getFloat("dirY");
-    if (tag.contains("dirZ", Tag.TAG_FLOAT)) cfg.dirZ = tag.getFloat("dirZ");
+    SpellEntityConfig cfg = new SpellEntityConfig(blocks, microScale, behavior, false, 0.0f);
+    // Configs saved before rotations were kept apart hold rotated blocks and no buckets
+    cfg.setRotation(tag.getInt("yaw"), tag.getInt("pitch"));
+    cfg.applyMotionNBT(tag);
 
     return cfg;
   }
@@ -1,7 +1,15 @@
 package com.clopez021.mine_arena.util;
 
+import static com.clopez021.mine_arena.MineArena.MOD_ID;
+
+import com.clopez021.mine_arena.config.ServerConfig;
 import com.clopez021.mine_arena.model3d.Model;
+import com.clopez021.mine_arena.model3d.ModelBaker;
 import com.clopez021.mine_arena.model3d.ObjModel;
+import com.clopez021.mine_arena.model3d.util.Palette;
+import com.clopez021.mine_arena.model3d.util.VoxelDownsampler;
+import com.clopez021.mine_arena.model3d.util.VoxelFile;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -9,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.block.state.BlockState;
 import org.apache.commons.io.FilenameUtils;
@@ -19,15 +28,107 @@ public final class ModelUtils {
   private ModelUtils() {}
 
   /**
-   * Converts a Model into voxelized blocks.
+   * The blocks of a spell model.
+   *
+   * @param blocks The blocks of the model.
+   * @param blockSize How many voxels of the full resolution model each block spans along every
+   *     axis, greater than 1 if the model was downsampled to fit the voxel budget.
+   */
+  public record SpellVoxels(Map<BlockPos, BlockState> blocks, int blockSize) {
+    /**
+     * @param microScale The microScale the full resolution model is rendered at.
+     * @return The microScale that renders these blocks at the size of the full resolution model.
+     */
+    public float scale(float microScale) {
+      return microScale * blockSize;
+    }
+  }
+
+  /**
+   * Converts a Model into voxelized blocks without going through the {@link VoxelCache}, for
+   * one-off models such as generated ones.
    *
    * @param model The model to voxelize
-   * @return Map of BlockPos to BlockState representing the voxelized model
+   * @return The voxelized model, fit to the spell voxel budget
+   */
+  public static SpellVoxels buildVoxels(Model model) {
+    if (model == null) return new SpellVoxels(Map.of(), 1);
+    return voxelize(model, null);
+  }
+
+  /**
+   * Voxelizes a model that is not cached.
+   *
+   * @param key The {@link VoxelCache} key to store the blocks under, or null to not store them.
+   */
+  private static SpellVoxels voxelize(Model model, String key) {
+    Map<BlockPos, BlockState> blocks = new HashMap<>(model.getTextureToBlocks());
+    if (key != null) VoxelCache.write(key, blocks);
+    return fitToBudget(blocks);
+  }
+
+  /**
+   * Downsamples blocks with {@link VoxelDownsampler} until there are no more than {@link
+   * ServerConfig#spellVoxelBudget} of them, so oversized models lose detail instead of slowing
+   * down syncing, rendering and saving spells. Air, which transparent texels voxelize to, is left
+   * out and does not count toward the budget.
+   *
+   * @param blocks The blocks of a spell model.
+   * @return The blocks, downsampled if needed.
    */
-  public static Map<BlockPos, BlockState> buildVoxels(Model model) {
-    if (model == null) return Map.of();
-    Map<BlockPos, BlockState> blocks = model.getTextureToBlocks();
-    return new HashMap<>(blocks);
+  public static SpellVoxels fitToBudget(Map<BlockPos, BlockState> blocks) {
+    if (blocks.values().stream().anyMatch(BlockState::isAir)) {
+      blocks = new HashMap<>(blocks);
+      blocks.values().removeIf(BlockState::isAir);
+    }
+    int budget = ServerConfig.spellVoxelBudget;
+    if (budget <= 0 || blocks.size() <= budget) return new SpellVoxels(blocks, 1);
+    return fitToBudget(toPaletteGrid(blocks));
+  }
+
+  /**
+   * Matches every block state back to its palette index, so blocks can be downsampled with {@link
+   * VoxelDownsampler}.
+   *
+   * @param blocks A map of block positions mapped to block states.
+   * @return A grid of the palette index of each block. Air blocks are left out.
+   */
+  public static VoxelGrid toPaletteGrid(Map<BlockPos, BlockState> blocks) {
+    Map<BlockState, Integer> indices = new HashMap<>();
+    VoxelGrid grid = new VoxelGrid(blocks.size());
+    for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+      if (entry.getValue().isAir()) continue;
+      int index =
+          indices.computeIfAbsent(
+              entry.getValue(),
+              state -> {
+                ResourceLocation id = BuiltInRegistries.BLOCK.getKey(state.getBlock());
+                return Palette.indexOf(
+                    id.getNamespace().equals("minecraft") ? id.getPath() : id.toString());
+              });
+      BlockPos pos = entry.getKey();
+      grid.put(pos.getX(), pos.getY(), pos.getZ(), index);
+    }
+    return grid;
+  }
+
+  /**
+   * @see #fitToBudget(Map)
+   */
+  private static SpellVoxels fitToBudget(VoxelGrid grid) {
+    VoxelGrid solid = new VoxelGrid(grid.size());
+    grid.forEach(
+        (x, y, z, index) -> {
+          if (index != Palette.AIR) solid.put(x, y, z, index);
+        });
+    grid = solid;
+    int budget = ServerConfig.spellVoxelBudget;
+    int blockSize = 1;
+    while (budget > 0 && grid.size() > budget && grid.size() > 1) {
+      grid = VoxelDownsampler.halve(grid);
+      blockSize *= 2;
+    }
+    return new SpellVoxels(Model.toBlockMap(grid), blockSize);
   }
 
   /**
@@ -43,6 +144,84 @@ public final class ModelUtils {
     throw new ValueException("Error: The file is not a valid OBJ model file.");
   }
 
+  /**
+   * Loads the blocks of a bundled spell model. Models baked at build time by {@link ModelBaker} are
+   * read directly; otherwise the raw assets are looked up in the {@link VoxelCache} by their bytes,
+   * and only loaded and voxelized on a miss.
+   *
+   * @param baseName The name of the model, e.g. fireball.
+   * @return The voxelized model, fit to the spell voxel budget
+   */
+  public static SpellVoxels loadDefaultVoxels(String baseName)
+      throws IOException, ValueException {
+    String bakedPath =
+        "/assets/" + MOD_ID + "/" + ModelBaker.BAKED_DIRECTORY + "/" + baseName + ".vox";
+    try (InputStream in = ModelUtils.class.getResourceAsStream(bakedPath)) {
+      if (in != null) {
+        VoxelGrid grid = VoxelFile.read(in, Palette::indexOf);
+        if (grid != null) return fitToBudget(grid);
+      }
+    }
+
+    ResourceLocation directory =
+        ResourceLocation.fromNamespaceAndPath(MOD_ID, "models/" + baseName);
+    ModelBaker.DefaultModel defaultModel = ModelBaker.getDefaultModel(baseName);
+    // Keyed by the raw resources, so a hit neither copies nor parses the model
+    String key =
+        VoxelCache.key(hashModelResources(directory, baseName), defaultModel.transform());
+    if (key != null) {
+      Map<BlockPos, BlockState> cached = VoxelCache.read(key);
+      if (cached != null) return fitToBudget(cached);
+    }
+
+    Model model = loadModelFromResources(directory, baseName);
+    defaultModel.applyTo(model);
+    return voxelize(model, key);
+  }
+
+  /**
+   * Hashes the OBJ, MTL and textures of a model on the classpath with {@link
+   * ObjModel#hashSources(byte[], byte[], Map)}, without copying or parsing them.
+   *
+   * @return The hash, or null if there is no OBJ.
+   */
+  private static String hashModelResources(ResourceLocation directory, String baseName)
+      throws IOException {
+    String root = "/assets/" + directory.getNamespace() + "/" + directory.getPath() + "/";
+    byte[] obj = readClasspathResource(root + baseName + ".obj");
+    if (obj == null) return null;
+    byte[] mtl = readClasspathResource(root + baseName + ".mtl");
+    Map<String, byte[]> textures = new HashMap<>();
+    if (mtl != null) {
+      for (String line : new String(mtl, StandardCharsets.UTF_8).split("\n")) {
+        String texture = getMapKdPath(line);
+        byte[] bytes = texture != null ? readClasspathResource(root + texture) : null;
+        if (bytes != null) textures.put(texture, bytes);
+      }
+    }
+    return ObjModel.hashSources(obj, mtl, textures);
+  }
+
+  /**
+   * @return The bytes of a classpath resource, or null if there is none.
+   */
+  private static byte[] readClasspathResource(String classpathPath) throws IOException {
+    try (InputStream in = ModelUtils.class.getResourceAsStream(classpathPath)) {
+      return in != null ? in.readAllBytes() : null;
+    }
+  }
+
+  /**
+   * @param line A line of an MTL file.
+   * @return The texture path of a map_Kd command, or null if the line is not one.
+   */
+  private static String getMapKdPath(String line) {
+    String s = line.strip();
+    if (s.isEmpty()) return null;
+    String[] parts = s.replaceAll(" +", " ").split(" ", 2);
+    return parts.length == 2 && parts[0].equals("map_Kd") ? parts[1] : null;
+  }
+
   /**
    * Copy OBJ/MTL/textures from the classpath under assets into the local models/ folder, then load.
    * Example directory: mine_arena:models/fireball, baseName: fireball
@@ -97,10 +276,8 @@ public final class ModelUtils {
         String line;
         while ((line = br.readLine()) != null) {
           content.append(line).append('\n');
-          String s = line.strip();
-          if (s.isEmpty()) continue;
-          String[] parts = s.replaceAll(" +", " ").split(" ", 2);
-          if (parts.length == 2 && parts[0].equals("map_Kd")) textures.add(parts[1]);
+          String texture = getMapKdPath(line);
+          if (texture != null) textures.add(texture);
         }
       }
     }
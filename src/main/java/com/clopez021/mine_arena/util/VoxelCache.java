@@ -0,0 +1,135 @@
+package com.clopez021.mine_arena.util;
+
+import com.clopez021.mine_arena.model3d.ObjModel;
+import com.clopez021.mine_arena.model3d.util.Palette;
+import com.clopez021.mine_arena.model3d.util.VoxelFile;
+import com.clopez021.mine_arena.model3d.util.VoxelGrid;
+import com.mojang.logging.LogUtils;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import org.joml.Matrix4f;
+import org.slf4j.Logger;
+
+/**
+ * A disk cache of voxelized models under models/cache. Entries are keyed by a hash of the model's
+ * source files, its rotation and scale, and the palette, so a model is only voxelized again when
+ * one of those changes. The key only needs the raw bytes of the source files, so a hit can skip
+ * loading the model entirely.
+ *
+ * <p>Entries are {@link VoxelFile}s naming blocks by their registry ids. Only default block states
+ * are stored, which is all the palette produces.
+ */
+public final class VoxelCache {
+  private VoxelCache() {}
+
+  private static final Logger LOGGER = LogUtils.getLogger();
+
+  /** Bump whenever the voxelizer changes to ignore older entries. */
+  private static final int FORMAT_VERSION = 2;
+
+  public static final File directory = new File("models/cache");
+
+  /**
+   * @param sourceHash The {@link ObjModel#hashSources(byte[], byte[], Map)} of a model's files, or
+   *     null if it cannot be cached.
+   * @param transform The transformation of the model.
+   * @return The cache key of the model with the transformation, or null if it cannot be cached.
+   */
+  public static String key(String sourceHash, Matrix4f transform) {
+    if (sourceHash == null) return null;
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(sourceHash.getBytes(StandardCharsets.UTF_8));
+      digest.update(Palette.getVersion().getBytes(StandardCharsets.UTF_8));
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(FORMAT_VERSION);
+      for (float value : transform.get(new float[16])) out.writeFloat(value);
+      digest.update(bytes.toByteArray());
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param key A key from {@link #key(String, Matrix4f)}.
+   * @return The cached blocks, or null if there is no usable entry.
+   */
+  public static Map<BlockPos, BlockState> read(String key) {
+    File file = new File(directory, key + ".vox");
+    if (!file.isFile()) return null;
+    List<BlockState> states = new ArrayList<>();
+    try (InputStream in = new FileInputStream(file)) {
+      VoxelGrid grid =
+          VoxelFile.read(
+              in,
+              name -> {
+                ResourceLocation id = ResourceLocation.tryParse(name);
+                Block block =
+                    id != null ? BuiltInRegistries.BLOCK.getOptional(id).orElse(null) : null;
+                // A block that is no longer registered makes the whole entry stale
+                if (block == null) return -1;
+                states.add(block.defaultBlockState());
+                return states.size() - 1;
+              });
+      if (grid == null) return null;
+      Map<BlockPos, BlockState> blocks = new HashMap<>(grid.size() * 2);
+      grid.forEach((x, y, z, index) -> blocks.put(new BlockPos(x, y, z), states.get(index)));
+      return blocks;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Ignoring unreadable voxel cache entry {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores blocks under the key. Failures are logged and otherwise ignored.
+   *
+   * @param key A key from {@link #key(String, Matrix4f)}.
+   * @param blocks The blocks to store.
+   */
+  public static void write(String key, Map<BlockPos, BlockState> blocks) {
+    Map<Block, Integer> indices = new HashMap<>();
+    List<Block> table = new ArrayList<>();
+    VoxelGrid grid = new VoxelGrid(blocks.size());
+    for (Map.Entry<BlockPos, BlockState> entry : blocks.entrySet()) {
+      int index =
+          indices.computeIfAbsent(
+              entry.getValue().getBlock(),
+              block -> {
+                table.add(block);
+                return table.size() - 1;
+              });
+      BlockPos pos = entry.getKey();
+      grid.put(pos.getX(), pos.getY(), pos.getZ(), index);
+    }
+
+    File file = new File(directory, key + ".vox");
+    File temp = new File(directory, key + ".tmp");
+    try {
+      directory.mkdirs();
+      try (OutputStream out = new FileOutputStream(temp)) {
+        VoxelFile.write(out, grid, i -> BuiltInRegistries.BLOCK.getKey(table.get(i)).toString());
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to write voxel cache entry {}", file, e);
+      temp.delete();
+    }
+  }
+}
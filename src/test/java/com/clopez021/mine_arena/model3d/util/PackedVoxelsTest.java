@@ -0,0 +1,181 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PackedVoxelsTest {
+  private static final String[] NAMES = {"minecraft:stone", "minecraft:dirt", "mine_arena:glow"};
+
+  @Test
+  void roundTripsMixedVoxels() {
+    VoxelGrid grid = new VoxelGrid();
+    Random random = new Random(7);
+    for (int x = -20; x < 20; ++x) {
+      for (int y = -3; y < 12; ++y) {
+        for (int z = -20; z < 20; ++z) {
+          if (x * x + (y - 4) * (y - 4) + z * z <= 400) grid.put(x, y, z, (x + z & 8) >> 3);
+        }
+      }
+    }
+    // Scattered voxels far apart and at the edges of the coordinate range
+    for (int i = 0; i < 200; ++i) {
+      grid.put(random.nextInt(2000) - 1000, random.nextInt(600) - 300, random.nextInt(2000), 2);
+    }
+    grid.put(-(1 << 20), (1 << 20) - 1, 0, 1);
+
+    assertEquals(toMap(grid), toMap(roundTrip(grid)));
+  }
+
+  @Test
+  void roundTripsEmptyGrid() {
+    assertEquals(0, roundTrip(new VoxelGrid()).size());
+  }
+
+  @Test
+  void leavesOutUnknownBlocks() {
+    VoxelGrid grid = new VoxelGrid();
+    grid.put(0, 0, 0, 0);
+    grid.put(1, 0, 0, 2);
+    VoxelGrid decoded =
+        PackedVoxels.decode(
+            PackedVoxels.encode(grid, i -> NAMES[i]), name -> name.equals(NAMES[2]) ? -1 : 0);
+    assertEquals(Map.of(List.of(0, 0, 0), 0), toMap(decoded));
+  }
+
+  @Test
+  void rejectsTruncatedBytes() {
+    VoxelGrid grid = new VoxelGrid();
+    for (int z = 0; z < 10; ++z) grid.put(z, 0, z, z % 3);
+    byte[] packed = PackedVoxels.encode(grid, i -> NAMES[i]);
+    for (int length = 0; length < packed.length; ++length) {
+      byte[] truncated = Arrays.copyOf(packed, length);
+      assertThrows(IllegalArgumentException.class, () -> decode(truncated));
+    }
+  }
+
+  @Test
+  void rejectsUnknownVersion() {
+    byte[] packed = PackedVoxels.encode(new VoxelGrid(), i -> NAMES[i]);
+    packed[0] = 99;
+    assertThrows(IllegalArgumentException.class, () -> decode(packed));
+  }
+
+  @Test
+  void rejectsOutOfRangeTableIndex() {
+    assertThrows(IllegalArgumentException.class, () -> decode(packedRun(0, 1)));
+  }
+
+  @Test
+  void rejectsOversizedRuns() {
+    assertThrows(IllegalArgumentException.class, () -> decode(packedRun(Integer.MAX_VALUE, 0)));
+    assertThrows(IllegalArgumentException.class, () -> decode(packedRun(-1, 0)));
+  }
+
+  @Test
+  void rejectsCoordinatesOutOfRange() {
+    int limit = 1 << 20;
+    assertEquals(2 * limit, decode(packedRuns(new int[][] {{0, 0, -limit, 2 * limit}})).size());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> decode(packedRuns(new int[][] {{0, 0, -limit, 2 * limit + 1}})));
+    assertThrows(
+        IllegalArgumentException.class, () -> decode(packedRuns(new int[][] {{limit, 0, 0, 1}})));
+  }
+
+  @Test
+  void rejectsMoreThanMaxVoxels() {
+    int limit = 1 << 20, column = 2 * limit;
+    int columns = PackedVoxels.MAX_VOXELS / column;
+    int[][] runs = new int[columns][];
+    // Full columns along z at increasing y, each starting back at the low end
+    runs[0] = new int[] {0, 0, -limit, column};
+    for (int i = 1; i < columns; ++i) runs[i] = new int[] {0, 1, 0, column};
+    assertEquals(PackedVoxels.MAX_VOXELS, decode(packedRuns(runs)).size());
+
+    int[][] more = Arrays.copyOf(runs, columns + 1);
+    more[columns] = new int[] {0, 1, 0, 1};
+    assertThrows(IllegalArgumentException.class, () -> decode(packedRuns(more)));
+  }
+
+  @Test
+  void packsRunsCompactly() {
+    VoxelGrid grid = new VoxelGrid();
+    for (int x = 0; x < 32; ++x) {
+      for (int y = 0; y < 32; ++y) {
+        for (int z = 0; z < 32; ++z) grid.put(x, y, z, 0);
+      }
+    }
+    byte[] packed = PackedVoxels.encode(grid, i -> NAMES[i]);
+    // One run per column of five single-byte varints, plus the header
+    assertTrue(packed.length < 32 * 32 * 5 + 64);
+    assertArrayEquals(packed, PackedVoxels.encode(roundTrip(grid), i -> NAMES[i]));
+  }
+
+  private static VoxelGrid roundTrip(VoxelGrid grid) {
+    return decode(PackedVoxels.encode(grid, i -> NAMES[i]));
+  }
+
+  private static VoxelGrid decode(byte[] bytes) {
+    return PackedVoxels.decode(bytes, name -> Arrays.asList(NAMES).indexOf(name));
+  }
+
+  private static Map<List<Integer>, Integer> toMap(VoxelGrid grid) {
+    Map<List<Integer>, Integer> map = new HashMap<>();
+    grid.forEach((x, y, z, value) -> map.put(List.of(x, y, z), value));
+    return map;
+  }
+
+  /** A single run at the origin. */
+  private static byte[] packedRun(int length, int index) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeHeader(out, 1);
+    writeRun(out, 0, 0, 0, length, index);
+    return out.toByteArray();
+  }
+
+  /** Runs of the first name, each as {dx, dy, dz, length} relative to the run before. */
+  private static byte[] packedRuns(int[][] runs) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeHeader(out, runs.length);
+    for (int[] run : runs) writeRun(out, run[0], run[1], run[2], run[3], 0);
+    return out.toByteArray();
+  }
+
+  /** Writes the version, a table holding the first name and the number of runs. */
+  private static void writeHeader(ByteArrayOutputStream out, int runCount) {
+    writeVarInt(out, 1);
+    writeVarInt(out, 1);
+    byte[] name = NAMES[0].getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, name.length);
+    out.writeBytes(name);
+    writeVarInt(out, runCount);
+  }
+
+  private static void writeRun(
+      ByteArrayOutputStream out, int dx, int dy, int dz, int length, int index) {
+    writeVarInt(out, (dx << 1) ^ (dx >> 31));
+    writeVarInt(out, (dy << 1) ^ (dy >> 31));
+    writeVarInt(out, (dz << 1) ^ (dz >> 31));
+    writeVarInt(out, length - 1);
+    writeVarInt(out, index);
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
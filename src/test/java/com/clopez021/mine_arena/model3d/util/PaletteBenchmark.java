@@ -0,0 +1,76 @@
+package com.clopez021.mine_arena.model3d.util;
+
+import static com.clopez021.mine_arena.MineArena.MOD_ID;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.Random;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * A quick microbenchmark of per-voxel block lookups, comparing block states resolved once per
+ * palette index with resolving every voxel through the block registry by name. Run it with {@code
+ * ./gradlew benchmarkPalette}.
+ */
+public final class PaletteBenchmark {
+  private PaletteBenchmark() {}
+
+  private static final int COLORS = 1 << 20;
+  private static final int ROUNDS = 5;
+
+  /** Times nearest block lookups for random opaque colors and prints the best round of each. */
+  public static void main(String[] args) throws IOException {
+    SharedConstants.tryDetectVersion();
+    Bootstrap.bootStrap();
+    try (InputStream in =
+        PaletteBenchmark.class.getResourceAsStream("/data/" + MOD_ID + "/" + Palette.fileName)) {
+      Palette.loadColors(Objects.requireNonNull(in, "Palette JSON file not found"));
+    }
+
+    Random random = new Random(42);
+    int[] colors = new int[COLORS];
+    for (int i = 0; i < COLORS; ++i) colors[i] = 0xFF000000 | random.nextInt(1 << 24);
+    // Resolve every index the colors can map to up front, as Palette does after loading
+    int largest = 0;
+    for (int color : colors) largest = Math.max(largest, Palette.getNearestBlockIndex(color));
+    BlockState[] states = new BlockState[largest + 1];
+    for (int i = 0; i < states.length; ++i) states[i] = resolveFromRegistry(i);
+
+    long registryNanos = Long.MAX_VALUE, tableNanos = Long.MAX_VALUE;
+    int sink = 0;
+    for (int round = 0; round < ROUNDS; ++round) {
+      long start = System.nanoTime();
+      for (int color : colors) {
+        sink += Objects.hashCode(resolveFromRegistry(Palette.getNearestBlockIndex(color)));
+      }
+      registryNanos = Math.min(registryNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for (int color : colors) sink += states[Palette.getNearestBlockIndex(color)].hashCode();
+      tableNanos = Math.min(tableNanos, System.nanoTime() - start);
+    }
+
+    System.out.printf(
+        "Palette lookups for %d colors: registry %d ms (%d ns/voxel), table %d ms (%d ns/voxel)"
+            + " [%d]%n",
+        COLORS,
+        registryNanos / 1_000_000,
+        registryNanos / COLORS,
+        tableNanos / 1_000_000,
+        tableNanos / COLORS,
+        sink);
+  }
+
+  /** Resolves the block of a palette index by name through the registry, once per call. */
+  private static BlockState resolveFromRegistry(int index) {
+    ResourceLocation id = ResourceLocation.tryParse(Palette.getBlockName(index));
+    Block block = id != null ? BuiltInRegistries.BLOCK.get(id) : null;
+    return block != null ? block.defaultBlockState() : null;
+  }
+}